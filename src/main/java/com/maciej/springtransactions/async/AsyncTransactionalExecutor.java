@@ -0,0 +1,146 @@
+package com.maciej.springtransactions.async;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking transactional work off the caller's thread, each call in its own transaction.
+ * At most maxConcurrency calls run at once (sized to the connection pool, so no call waits inside for a connection),
+ * a caller submitting more gets {@link TaskRejectedException} at once. A positive acquireTimeout makes it wait that long
+ * for a free slot instead, blocking the submitting thread.
+ * With virtualThreads every call gets its own virtual thread (Java 19+), otherwise a fixed pool of platform threads is used.
+ */
+@Slf4j
+public class AsyncTransactionalExecutor {
+
+    //calls submitted without a definition, timed under this name in transaction.duration
+    private static final TransactionDefinition DEFAULT = defaultDefinition();
+
+    private final PlatformTransactionManager transactionManager;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long acquireTimeoutNanos;
+    private final boolean virtual;
+
+    public AsyncTransactionalExecutor(PlatformTransactionManager transactionManager, int maxConcurrency,
+                                      Duration acquireTimeout, boolean virtualThreads) {
+        this.transactionManager = transactionManager;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        final ExecutorService virtualExecutor = virtualThreads ? virtualThreadExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : Executors.newFixedThreadPool(maxConcurrency, platformThreads());
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> action) {
+        return submit(DEFAULT, action);
+    }
+
+    public CompletableFuture<Void> run(Runnable action) {
+        return submit(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<T> submit(TransactionDefinition definition, Supplier<T> action) {
+        acquire();
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager, definition);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return transaction.execute(status -> action.get());
+                } finally {
+                    permits.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException ex) {
+            permits.release();
+            throw new TaskRejectedException("Executor is shut down", ex);
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getRunning() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Async transactions still running after 30s, interrupting them");
+            executor.shutdownNow();
+        }
+    }
+
+    private void acquire() {
+        if (acquireTimeoutNanos <= 0) {
+            if (!permits.tryAcquire()) {
+                throw new TaskRejectedException("All " + maxConcurrency + " async transaction slots busy");
+            }
+            return;
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new TaskRejectedException("All " + maxConcurrency + " async transaction slots busy for "
+                        + Duration.ofNanos(acquireTimeoutNanos).toMillis() + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted while waiting for async transaction slot", e);
+        }
+    }
+
+    private static TransactionDefinition defaultDefinition() {
+        final DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setName(AsyncTransactionalExecutor.class.getName() + ".submit");
+        return definition;
+    }
+
+    private static ThreadFactory platformThreads() {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "async-tx-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    //looked up reflectively, the build still targets Java 11
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not available on Java {}, using platform threads", Runtime.version().feature());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.maciej.springtransactions.cache;
+
+import lombok.Value;
+
+//bulk change of persons whose ids aren't known, e.g. InMemoryRepo.deleteAllInBatch
+@Value
+public class AllPersonsChangedEvent {
+}
@@ -0,0 +1,84 @@
+package com.maciej.springtransactions.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class PersonCache {
+
+    private final InMemoryRepo repo;
+    private final TransactionTemplate committedRead;
+    private final Cache<String, Person> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PersonCache(InMemoryRepo repo,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${cache.person.maximum-size:10000}") long maximumSize,
+                       @Value("${cache.person.expire-after-write:30s}") Duration expireAfterWrite) {
+        this.repo = repo;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        //repo itself reads READ_UNCOMMITTED, so misses outside of a transaction are loaded in a READ_COMMITTED one
+        // to never cache dirty data.
+        //Not readOnly on purpose: it would be routed to replica, which may not have the commit that just evicted the entry
+        this.committedRead = new TransactionTemplate(transactionManager);
+        committedRead.setName(PersonCache.class.getName() + ".findById");
+        committedRead.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    //the database is read outside of Caffeine's compute, which would block other keys of the same hash bin meanwhile.
+    //Inside a transaction the miss is read on its connection, a second one per caller can exhaust the pool, and is
+    // not cached: it may be the caller's own uncommitted change or a dirty read
+    public Optional<Person> findById(String id) {
+        final Person cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached.toBuilder().build());
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return repo.findById(id).map(person -> person.toBuilder().build());
+        }
+        final long invalidationsBefore = invalidations.get();
+        final Person loaded = committedRead.execute(status -> repo.findById(id).orElse(null));
+        if (loaded == null) {
+            return Optional.empty();
+        }
+        //not cached when an eviction happened during the read, the loaded person may be older than that commit
+        cache.asMap().compute(id, (key, current) -> invalidations.get() == invalidationsBefore ? loaded : current);
+        return Optional.of(loaded.toBuilder().build());
+    }
+
+    //runs after commit (or right away when there is no transaction), rolled back changes never evict anything
+    @TransactionalEventListener(fallbackExecution = true)
+    public void evict(PersonChangedEvent event) {
+        invalidations.incrementAndGet();
+        cache.invalidate(event.getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void evictAll(AllPersonsChangedEvent event) {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
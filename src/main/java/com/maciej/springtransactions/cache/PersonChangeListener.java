@@ -0,0 +1,25 @@
+package com.maciej.springtransactions.cache;
+
+import com.maciej.springtransactions.model.Person;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+//JPA entity listener, instantiated by Hibernate through Spring so the publisher can be injected
+public class PersonChangeListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public PersonChangeListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Person person) {
+        publisher.publishEvent(new PersonChangedEvent(person.getName()));
+    }
+}
@@ -0,0 +1,9 @@
+package com.maciej.springtransactions.cache;
+
+import lombok.Value;
+
+@Value
+public class PersonChangedEvent {
+
+    String id;
+}
@@ -0,0 +1,24 @@
+package com.maciej.springtransactions.config;
+
+import com.maciej.springtransactions.async.AsyncTransactionalExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+@Configuration
+public class AsyncTransactionConfig {
+
+    //one running call per pooled connection by default, Hikari's default pool size is 10.
+    // Callers beyond that are rejected at once, a positive acquire-timeout makes them wait for a slot instead
+    @Bean(destroyMethod = "shutdown")
+    public AsyncTransactionalExecutor asyncTransactionalExecutor(
+            PlatformTransactionManager transactionManager,
+            @Value("${async.transactions.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${async.transactions.acquire-timeout:0}") Duration acquireTimeout,
+            @Value("${async.transactions.virtual-threads:false}") boolean virtualThreads) {
+        return new AsyncTransactionalExecutor(transactionManager, maxConcurrency, acquireTimeout, virtualThreads);
+    }
+}
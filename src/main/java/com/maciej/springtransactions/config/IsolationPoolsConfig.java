@@ -0,0 +1,86 @@
+package com.maciej.springtransactions.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//one Hikari pool per isolation level plus one for DEFAULT, each takes spring.datasource.hikari settings and
+// isolation-pools.maximum-pool-size. Pools are not beans for the same reason as in ReplicaDataSourceConfig.
+//Can't be combined with the replica, and needs spring.jpa.open-in-view=false in web requests: the request-wide
+// EntityManager keeps its connection across transactions of different isolation
+@Configuration
+@Profile("!mvcc")
+@ConditionalOnExpression("${isolation-pools.enabled:false} && '${replica.datasource.jdbc-url:}'.isEmpty()")
+public class IsolationPoolsConfig {
+
+    private static final Map<Integer, String> LEVELS = Map.of(
+            TransactionDefinition.ISOLATION_READ_UNCOMMITTED, "TRANSACTION_READ_UNCOMMITTED",
+            TransactionDefinition.ISOLATION_READ_COMMITTED, "TRANSACTION_READ_COMMITTED",
+            TransactionDefinition.ISOLATION_REPEATABLE_READ, "TRANSACTION_REPEATABLE_READ",
+            TransactionDefinition.ISOLATION_SERIALIZABLE, "TRANSACTION_SERIALIZABLE");
+
+    private final Environment environment;
+    private final Map<Integer, DataSource> pools = new LinkedHashMap<>();
+
+    public IsolationPoolsConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Bean
+    @Primary
+    public IsolationRoutingDataSource dataSource(DataSourceProperties properties,
+                                                 @Value("${isolation-pools.maximum-pool-size:4}") int poolSize,
+                                                 ObjectProvider<MeterRegistry> registry) {
+        final HikariDataSource defaultPool = pool(properties, "default-isolation", poolSize, registry);
+        pools.put(TransactionDefinition.ISOLATION_DEFAULT, defaultPool);
+        LEVELS.forEach((level, name) -> {
+            final HikariDataSource pool = pool(properties,
+                    name.substring("TRANSACTION_".length()).toLowerCase().replace('_', '-'), poolSize, registry);
+            pool.setTransactionIsolation(name);
+            pools.put(level, pool);
+        });
+
+        final IsolationRoutingDataSource routing = new IsolationRoutingDataSource(pools);
+        registry.ifAvailable(meterRegistry -> FunctionCounter
+                .builder("transaction.isolation.statements.saved", routing, IsolationRoutingDataSource::getSavedStatements)
+                .description("Isolation switch and reset statements not sent, connection taken already at the requested level")
+                .register(meterRegistry));
+        return routing;
+    }
+
+    @PreDestroy
+    public void closePools() {
+        pools.values().forEach(pool -> ((HikariDataSource) pool).close());
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String name, int poolSize,
+                                  ObjectProvider<MeterRegistry> registry) {
+        final HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(poolSize);
+        if (pool.getMinimumIdle() > poolSize) {
+            pool.setMinimumIdle(poolSize);
+        }
+        registry.ifAvailable(meterRegistry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry)));
+        return pool;
+    }
+}
@@ -0,0 +1,98 @@
+package com.maciej.springtransactions.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out connections from the pool pinned to the isolation of the transaction being started, so the connection
+ * already has the right level and nothing has to be switched and reset around the transaction.
+ * The isolation is bound by SavepointHibernateJpaDialect before Hibernate asks for a connection, transaction
+ * synchronization knows it only after the connection is taken.
+ * Not an AbstractRoutingDataSource, Boot's health indicator skips those and then has no DataSource to check.
+ */
+public class IsolationRoutingDataSource extends AbstractDataSource {
+
+    private final Map<Integer, DataSource> pools;
+    private final ThreadLocal<Integer> isolation = new ThreadLocal<>();
+    private final LongAdder savedStatements = new LongAdder();
+    private volatile Integer databaseDefault;
+
+    //pools keyed by isolation level, the one under ISOLATION_DEFAULT is used outside of transactions too
+    public IsolationRoutingDataSource(Map<Integer, DataSource> pools) {
+        this.pools = Map.copyOf(pools);
+    }
+
+    //returns previously bound isolation, it belongs to a suspended transaction and is restored after this one
+    Integer bind(int isolationLevel) {
+        final Integer previous = isolation.get();
+        isolation.set(isolationLevel);
+        return previous;
+    }
+
+    void restore(Integer previous) {
+        if (previous == null) {
+            isolation.remove();
+        } else {
+            isolation.set(previous);
+        }
+    }
+
+    DataSource pool(int isolationLevel) {
+        return pools.get(isolationLevel);
+    }
+
+    public long getSavedStatements() {
+        return savedStatements.sum();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counted(currentPool().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counted(currentPool().getConnection(username, password));
+    }
+
+    //a connection of the default pool would need SET TRANSACTION ISOLATION before and reset to default after,
+    // only counted when the handed out connection really is at the requested level already
+    private Connection counted(Connection connection) throws SQLException {
+        final Integer level = isolation.get();
+        if (level == null || level == TransactionDefinition.ISOLATION_DEFAULT || level == databaseDefault()) {
+            return connection;
+        }
+        try {
+            if (connection.getTransactionIsolation() == level) {
+                savedStatements.add(2);
+            }
+        } catch (SQLException | RuntimeException ex) {
+            connection.close();
+            throw ex;
+        }
+        return connection;
+    }
+
+    private DataSource currentPool() {
+        final Integer level = isolation.get();
+        return pool(level == null ? TransactionDefinition.ISOLATION_DEFAULT : level);
+    }
+
+    private int databaseDefault() {
+        if (databaseDefault == null) {
+            try (Connection connection = pool(TransactionDefinition.ISOLATION_DEFAULT).getConnection()) {
+                databaseDefault = connection.getTransactionIsolation();
+            } catch (SQLException e) {
+                //counted as if every level needed switching
+                databaseDefault = TransactionDefinition.ISOLATION_DEFAULT;
+            }
+        }
+        return databaseDefault;
+    }
+}
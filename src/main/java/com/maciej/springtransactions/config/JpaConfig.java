@@ -0,0 +1,39 @@
+package com.maciej.springtransactions.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+@Configuration
+@Profile("!mvcc")
+public class JpaConfig {
+
+    //same as spring boot's default adapter, only the dialect is replaced
+    @Bean
+    public JpaVendorAdapter jpaVendorAdapter(JpaProperties properties,
+                                             ObjectProvider<IsolationRoutingDataSource> isolationRouting,
+                                             ObjectProvider<ReplicaDataSourceConfig> replica) {
+        final HibernateJpaDialect dialect = new SavepointHibernateJpaDialect(isolationRouting.getIfAvailable(),
+                replica.getIfAvailable() != null);
+        final HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter() {
+            @Override
+            public HibernateJpaDialect getJpaDialect() {
+                return dialect;
+            }
+        };
+        adapter.setShowSql(properties.isShowSql());
+        if (properties.getDatabase() != null) {
+            adapter.setDatabase(properties.getDatabase());
+        }
+        if (properties.getDatabasePlatform() != null) {
+            adapter.setDatabasePlatform(properties.getDatabasePlatform());
+        }
+        adapter.setGenerateDdl(properties.isGenerateDdl());
+        return adapter;
+    }
+}
@@ -0,0 +1,46 @@
+package com.maciej.springtransactions.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+//spring.main.lazy-initialization (fast-startup profile) creates beans only when something asks for them. Nothing asks
+// for these, they bind Hibernate, pool and cache metrics from @Autowired methods, so they are kept eager.
+//Boot 2.4+ has LazyInitializationExcludeFilter for this
+@Configuration
+@ConditionalOnProperty("spring.main.lazy-initialization")
+public class LazyInitializationConfig {
+
+    private static final Set<String> EAGER = Set.of(
+            "org.springframework.boot.actuate.autoconfigure.metrics.orm.jpa.HibernateMetricsAutoConfiguration",
+            "org.springframework.boot.actuate.autoconfigure.metrics.jdbc.DataSourcePoolMetricsAutoConfiguration$HikariDataSourceMetricsConfiguration",
+            "org.springframework.boot.actuate.autoconfigure.metrics.cache.CacheMetricsRegistrarConfiguration");
+
+    //registry post processors run before Boot's LazyInitializationBeanFactoryPostProcessor, which leaves definitions
+    // explicitly set to eager alone
+    @Bean
+    public static BeanDefinitionRegistryPostProcessor eagerMetricBinders() {
+        return new BeanDefinitionRegistryPostProcessor() {
+            @Override
+            public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+            }
+
+            @Override
+            public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+                for (String name : beanFactory.getBeanDefinitionNames()) {
+                    final BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                    final String className = definition.getBeanClassName();
+                    if (className != null && EAGER.contains(className)) {
+                        definition.setLazyInit(false);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package com.maciej.springtransactions.config;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+import org.h2.api.ErrorCode;
+
+import java.sql.SQLException;
+
+//H2 reports a lock timeout as SQLTimeoutException, which Hikari takes for a dead connection and evicts. The rollback
+// that follows then fails on the closed proxy and hides CannotAcquireLockException, so retries never see it.
+//The connection is fine, only the statement waited too long. Set in spring.datasource.hikari.exception-override-class-name of the h2 profile
+public class LockTimeoutExceptionOverride implements SQLExceptionOverride {
+
+    @java.lang.Override
+    public Override adjudicate(SQLException exception) {
+        return exception.getErrorCode() == ErrorCode.LOCK_TIMEOUT_1 ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+    }
+}
@@ -0,0 +1,26 @@
+package com.maciej.springtransactions.config;
+
+import com.maciej.springtransactions.mvcc.MvccStore;
+import com.maciej.springtransactions.mvcc.MvccTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+//in-process store instead of database, datasource and JPA auto-configuration are excluded in application-mvcc.yaml
+@Configuration
+@Profile("mvcc")
+public class MvccConfig {
+
+    @Bean
+    public MvccStore mvccStore(@Value("${mvcc.lock-timeout:200ms}") Duration lockTimeout) {
+        return new MvccStore(lockTimeout);
+    }
+
+    @Bean
+    public MvccTransactionManager transactionManager(MvccStore store) {
+        return new MvccTransactionManager(store);
+    }
+}
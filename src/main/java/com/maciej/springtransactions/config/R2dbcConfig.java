@@ -0,0 +1,71 @@
+package com.maciej.springtransactions.config;
+
+import com.maciej.springtransactions.repository.ReactivePersonRepo;
+import com.maciej.springtransactions.service.isolation.ReactiveQuickService;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import javax.persistence.EntityManagerFactory;
+
+//reactive access over R2DBC to the same H2 database JPA uses (in-memory databases are shared by name within a JVM).
+//There is no R2DBC driver for MySQL here, so the reactive path exists only when spring.datasource.url is H2.
+//The reactive transaction manager is not a bean: a second TransactionManager would make @Transactional ambiguous,
+// reactive code demarcates transactions with the TransactionalOperator instead
+@Configuration
+@Profile("!mvcc")
+@ConditionalOnExpression("'${spring.datasource.url:}'.startsWith('jdbc:h2:')")
+public class R2dbcConfig {
+
+    private static final String H2_PREFIX = "jdbc:h2:";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool r2dbcConnectionPool(DataSourceProperties properties,
+                                              @Value("${reactive.pool.max-size:10}") int maxSize) {
+        final H2ConnectionConfiguration configuration = H2ConnectionConfiguration.builder()
+                .url(properties.determineUrl().substring(H2_PREFIX.length()))
+                .username(properties.determineUsername())
+                .password(properties.determinePassword())
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuration))
+                .name("r2dbc")
+                .initialSize(1)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionPool connectionPool) {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Bean
+    public TransactionalOperator reactiveTransactions(ConnectionPool connectionPool) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+
+    @Bean
+    public ReactivePersonRepo reactivePersonRepo(DatabaseClient databaseClient) {
+        return new ReactivePersonRepo(databaseClient);
+    }
+
+    @Bean
+    public ReactiveQuickService reactiveQuickService(ReactivePersonRepo reactivePersonRepo,
+                                                     TransactionalOperator reactiveTransactions,
+                                                     EntityManagerFactory entityManagerFactory,
+                                                     ApplicationEventPublisher publisher) {
+        return new ReactiveQuickService(reactivePersonRepo, reactiveTransactions, entityManagerFactory.getCache(),
+                publisher);
+    }
+}
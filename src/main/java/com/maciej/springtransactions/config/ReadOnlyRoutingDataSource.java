@@ -0,0 +1,30 @@
+package com.maciej.springtransactions.config;
+
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//read-only flag is set after transaction begins, so this has to sit behind LazyConnectionDataSourceProxy,
+// which fetches the real connection only when the first statement is executed
+public class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+
+    //transaction name is the method that started it
+    private static final String REPOSITORY_TRANSACTION = SimpleJpaRepository.class.getName() + ".";
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return routesToReplica(TransactionSynchronizationManager.isCurrentTransactionReadOnly(),
+                TransactionSynchronizationManager.getCurrentTransactionName()) ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    //only readOnly transactions declared by the application. SimpleJpaRepository is @Transactional(readOnly = true)
+    // as well, its own transactions (repository called without a service transaction) stay on primary: they are the
+    // read half of read-modify-writes, which must see their earlier writes and current versions, not a lagging replica
+    static boolean routesToReplica(boolean readOnly, String transactionName) {
+        return readOnly && (transactionName == null || !transactionName.startsWith(REPOSITORY_TRANSACTION));
+    }
+}
@@ -0,0 +1,34 @@
+package com.maciej.springtransactions.config;
+
+import com.maciej.springtransactions.retry.Backoff;
+import com.maciej.springtransactions.retry.RetryBudget;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class RetryConfig {
+
+    @Bean
+    @ConfigurationProperties("retry.optimistic")
+    public Backoff optimisticBackoff() {
+        return new Backoff();
+    }
+
+    @Bean
+    @ConfigurationProperties("retry.lock")
+    public Backoff lockBackoff() {
+        final Backoff backoff = new Backoff();
+        backoff.setInitialDelay(Duration.ofMillis(20));
+        backoff.setMaxDelay(Duration.ofMillis(500));
+        return backoff;
+    }
+
+    @Bean
+    @ConfigurationProperties("retry.lock.budget")
+    public RetryBudget lockRetryBudget() {
+        return new RetryBudget();
+    }
+}
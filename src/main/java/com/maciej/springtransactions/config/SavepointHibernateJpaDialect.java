@@ -0,0 +1,190 @@
+package com.maciej.springtransactions.config;
+
+import org.h2.api.ErrorCode;
+import org.hibernate.CacheMode;
+import org.hibernate.HibernateException;
+import org.hibernate.PessimisticLockException;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.NestedTransactionNotSupportedException;
+import org.springframework.transaction.SavepointManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.DelegatingTransactionDefinition;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * HibernateJpaDialect does not expose savepoints, so Propagation.NESTED fails with NestedTransactionNotSupportedException.
+ * This dialect sets JDBC savepoints on the session connection. Pending changes are flushed before a savepoint is taken
+ * and the persistence context is cleared on rollback to it, so entities loaded earlier in the transaction become detached.
+ * With isolation pinned pools the isolation is used only to pick the pool and is not set on the connection.
+ * REPEATABLE_READ and SERIALIZABLE transactions rely on the database's locks and snapshots, they neither read nor fill
+ * the second-level cache. Neither do readOnly transactions when they are routed to a replica.
+ * An H2 lock timeout is translated to CannotAcquireLockException, as a MySQL one is.
+ */
+public class SavepointHibernateJpaDialect extends HibernateJpaDialect {
+
+    //null when there is a single pool
+    private final IsolationRoutingDataSource isolationRouting;
+    private final boolean readOnlyOnReplica;
+
+    public SavepointHibernateJpaDialect() {
+        this(null, false);
+    }
+
+    public SavepointHibernateJpaDialect(IsolationRoutingDataSource isolationRouting, boolean readOnlyOnReplica) {
+        this.isolationRouting = isolationRouting;
+        this.readOnlyOnReplica = readOnlyOnReplica;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition) throws SQLException {
+        final CacheBypass cacheBypass = bypassesCache(definition) ? new CacheBypass(entityManager) : null;
+        try {
+            return begin(entityManager, definition, cacheBypass);
+        } catch (SQLException | RuntimeException | Error ex) {
+            if (cacheBypass != null) {
+                cacheBypass.restore();
+            }
+            throw ex;
+        }
+    }
+
+    private Object begin(EntityManager entityManager, TransactionDefinition definition, CacheBypass cacheBypass)
+            throws SQLException {
+        final Session session = getSession(entityManager);
+        if (isolationRouting == null) {
+            final Object transactionData = super.beginTransaction(entityManager, definition);
+            return new SavepointTransactionData(session, transactionData, null, cacheBypass);
+        }
+        final Integer previous = isolationRouting.bind(definition.getIsolationLevel());
+        try {
+            final Object transactionData = super.beginTransaction(entityManager, new DelegatingTransactionDefinition(definition) {
+                @Override
+                public int getIsolationLevel() {
+                    return ISOLATION_DEFAULT;
+                }
+            });
+            return new SavepointTransactionData(session, transactionData, previous, cacheBypass);
+        } catch (SQLException | RuntimeException | Error ex) {
+            isolationRouting.restore(previous);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        final SavepointTransactionData data = (SavepointTransactionData) transactionData;
+        try {
+            super.cleanupTransaction(data.delegate);
+        } finally {
+            if (data.cacheBypass != null) {
+                data.cacheBypass.restore();
+            }
+            if (isolationRouting != null) {
+                isolationRouting.restore(data.previousIsolation);
+            }
+        }
+    }
+
+    //Hibernate's H2Dialect makes a plain PessimisticLockException of it, MySQLDialect a LockTimeoutException
+    @Override
+    protected DataAccessException convertHibernateAccessException(HibernateException ex) {
+        if (ex instanceof PessimisticLockException
+                && ((PessimisticLockException) ex).getErrorCode() == ErrorCode.LOCK_TIMEOUT_1) {
+            return new CannotAcquireLockException(ex.getMessage(), ex);
+        }
+        return super.convertHibernateAccessException(ex);
+    }
+
+    private boolean bypassesCache(TransactionDefinition definition) {
+        final int isolation = definition.getIsolationLevel();
+        return isolation == TransactionDefinition.ISOLATION_REPEATABLE_READ
+                || isolation == TransactionDefinition.ISOLATION_SERIALIZABLE
+                || (readOnlyOnReplica && ReadOnlyRoutingDataSource.routesToReplica(definition.isReadOnly(), definition.getName()));
+    }
+
+    private static class SavepointTransactionData implements SavepointManager {
+
+        private final Session session;
+        private final Object delegate;
+        private final Integer previousIsolation;
+        //null when the transaction uses the cache
+        private final CacheBypass cacheBypass;
+
+        private SavepointTransactionData(Session session, Object delegate, Integer previousIsolation,
+                                         CacheBypass cacheBypass) {
+            this.session = session;
+            this.delegate = delegate;
+            this.previousIsolation = previousIsolation;
+            this.cacheBypass = cacheBypass;
+        }
+
+        @Override
+        public Object createSavepoint() throws TransactionException {
+            session.flush();
+            try {
+                return session.doReturningWork(connection -> connection.setSavepoint());
+            } catch (RuntimeException ex) {
+                throw new NestedTransactionNotSupportedException("Could not create JDBC savepoint: " + ex.getMessage());
+            }
+        }
+
+        @Override
+        public void rollbackToSavepoint(Object savepoint) throws TransactionException {
+            session.clear();
+            try {
+                session.doWork(connection -> connection.rollback((Savepoint) savepoint));
+            } catch (RuntimeException ex) {
+                throw new TransactionSystemException("Could not roll back to JDBC savepoint", ex);
+            }
+        }
+
+        @Override
+        public void releaseSavepoint(Object savepoint) throws TransactionException {
+            try {
+                session.doWork(connection -> connection.releaseSavepoint((Savepoint) savepoint));
+            } catch (RuntimeException ignored) {
+                //savepoint is released with the transaction anyway
+            }
+        }
+    }
+
+    //queries follow the session's CacheMode, EntityManager.find the JPA cache modes among its properties
+    private static class CacheBypass {
+
+        private final EntityManager entityManager;
+        private final Session session;
+        private final CacheMode previousCacheMode;
+        private final Object previousRetrieveMode;
+        private final Object previousStoreMode;
+
+        private CacheBypass(EntityManager entityManager) {
+            this.entityManager = entityManager;
+            this.session = entityManager.unwrap(Session.class);
+            this.previousCacheMode = session.getCacheMode();
+            this.previousRetrieveMode = entityManager.getProperties()
+                    .getOrDefault(AvailableSettings.JPA_SHARED_CACHE_RETRIEVE_MODE, CacheRetrieveMode.USE);
+            this.previousStoreMode = entityManager.getProperties()
+                    .getOrDefault(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, CacheStoreMode.USE);
+            session.setCacheMode(CacheMode.IGNORE);
+            entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+            entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        }
+
+        private void restore() {
+            session.setCacheMode(previousCacheMode);
+            entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_RETRIEVE_MODE, previousRetrieveMode);
+            entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, previousStoreMode);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.maciej.springtransactions.config;
+
+import com.maciej.springtransactions.metrics.InstrumentedTransactionManager;
+import com.maciej.springtransactions.metrics.TransactionWatchdog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+
+//wraps whichever transaction manager is active (JPA or MVCC), so @Transactional and TransactionTemplate both go through it.
+//Scheduling drives TransactionWatchdog checks
+@Configuration
+@EnableScheduling
+public class TransactionMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor transactionManagerMetricsPostProcessor(ObjectProvider<MeterRegistry> registry,
+                                                                         ObjectProvider<TransactionWatchdog> watchdog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof PlatformTransactionManager && !(bean instanceof InstrumentedTransactionManager)) {
+                    return new InstrumentedTransactionManager((PlatformTransactionManager) bean, registry, watchdog);
+                }
+                return bean;
+            }
+        };
+    }
+}
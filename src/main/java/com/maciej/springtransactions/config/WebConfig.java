@@ -0,0 +1,39 @@
+package com.maciej.springtransactions.config;
+
+import com.maciej.springtransactions.web.InFlightLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class WebConfig {
+
+    //as many requests in flight as AsyncTransactionalExecutor runs at once, so an admitted request never waits for a slot
+    @Bean
+    public InFlightLimiter inFlightLimiter(
+            @Value("${web.max-in-flight:${async.transactions.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}}") int maxInFlight,
+            ObjectProvider<MeterRegistry> registry) {
+        final InFlightLimiter limiter = new InFlightLimiter(maxInFlight);
+        registry.ifAvailable(meterRegistry -> {
+            FunctionCounter.builder("http.admission.rejected", limiter, InFlightLimiter::getRejected)
+                    .description("Requests rejected with 503 because max-in-flight was reached")
+                    .register(meterRegistry);
+            Gauge.builder("http.admission.in-flight", limiter, InFlightLimiter::getInFlight)
+                    .register(meterRegistry);
+        });
+        return limiter;
+    }
+
+    //only the API is limited, actuator stays reachable under load
+    @Bean
+    public FilterRegistrationBean<InFlightLimiter> inFlightLimiterRegistration(InFlightLimiter limiter) {
+        final FilterRegistrationBean<InFlightLimiter> registration = new FilterRegistrationBean<>(limiter);
+        registration.addUrlPatterns("/accounts", "/accounts/*");
+        return registration;
+    }
+}
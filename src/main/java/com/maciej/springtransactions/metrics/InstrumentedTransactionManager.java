@@ -0,0 +1,220 @@
+package com.maciej.springtransactions.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every transaction boundary (@Transactional method or TransactionTemplate call) of the wrapped manager.
+ * Commits and rollbacks are counted only where something really happens: new transactions and savepoints of NESTED,
+ * methods joining an outer transaction are timed but their "commit" is a no-op.
+ * Meters are created on first use of a boundary and cached, so a call costs a map lookup and two clock reads.
+ * New transactions are also registered in TransactionWatchdog (when enabled), which may ask to roll them back.
+ * Such a transaction is rolled back on commit and the commit throws TransactionTimedOutException.
+ * TransactionTemplate has no name unless setName is called, the application names its templates where they are built.
+ * Unnamed definitions share the "unnamed" boundary, nothing is looked up per call to tell them apart.
+ */
+public class InstrumentedTransactionManager implements PlatformTransactionManager {
+
+    private final PlatformTransactionManager delegate;
+    private final ObjectProvider<MeterRegistry> registry;
+    private final ObjectProvider<TransactionWatchdog> watchdogProvider;
+    private final ConcurrentMap<Boundary, TransactionMeters> meters = new ConcurrentHashMap<>();
+    private volatile Optional<TransactionWatchdog> watchdog;
+
+    public InstrumentedTransactionManager(PlatformTransactionManager delegate,
+                                          ObjectProvider<MeterRegistry> registry,
+                                          ObjectProvider<TransactionWatchdog> watchdog) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.watchdogProvider = watchdog;
+    }
+
+    public PlatformTransactionManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) throws TransactionException {
+        final TransactionDefinition effective = definition != null ? definition : TransactionDefinition.withDefaults();
+        final TransactionMeters transactionMeters = meters(effective);
+
+        final long start = System.nanoTime();
+        final TransactionStatus status = delegate.getTransaction(definition);
+        final long begun = System.nanoTime();
+        OpenTransaction open = null;
+        if (status.isNewTransaction()) {
+            transactionMeters.begin.record(begun - start, TimeUnit.NANOSECONDS);
+            open = watchdog().map(watchdog -> watchdog.opened(effective)).orElse(null);
+        }
+        return new InstrumentedTransactionStatus(status, transactionMeters, begun, open);
+    }
+
+    @Override
+    public void commit(TransactionStatus status) throws TransactionException {
+        final InstrumentedTransactionStatus instrumented = (InstrumentedTransactionStatus) status;
+        //savepoint is gone after completion, so it is checked before
+        final boolean physical = instrumented.isPhysical();
+        //flag set by watchdog thread, status itself is touched only by its owner
+        final boolean timedOut = instrumented.open != null && instrumented.open.rollbackRequested;
+        if (timedOut) {
+            instrumented.delegate.setRollbackOnly();
+        }
+        //rollback-only status is rolled back by commit
+        boolean committed = !instrumented.isRollbackOnly();
+        try {
+            delegate.commit(instrumented.delegate);
+        } catch (RuntimeException | Error ex) {
+            committed = false;
+            throw ex;
+        } finally {
+            instrumented.completed(committed, physical);
+            closed(instrumented);
+        }
+        if (timedOut) {
+            //a new transaction marked rollback-only locally is rolled back silently, the caller has to know its writes are gone
+            throw new TransactionTimedOutException("Transaction " + instrumented.open.getName()
+                    + " rolled back by TransactionWatchdog, it was open longer than the threshold");
+        }
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) throws TransactionException {
+        final InstrumentedTransactionStatus instrumented = (InstrumentedTransactionStatus) status;
+        final boolean physical = instrumented.isPhysical();
+        final boolean participating = instrumented.isParticipating();
+        try {
+            delegate.rollback(instrumented.delegate);
+        } finally {
+            if (participating) {
+                //failed method which joined outer transaction marks the whole transaction rollback-only
+                instrumented.meters.rollbackOnly.increment();
+            }
+            instrumented.completed(false, physical);
+            closed(instrumented);
+        }
+    }
+
+    private void closed(InstrumentedTransactionStatus status) {
+        if (status.open != null) {
+            watchdog().ifPresent(watchdog -> watchdog.closed(status.open));
+        }
+    }
+
+    private Optional<TransactionWatchdog> watchdog() {
+        if (watchdog == null) {
+            watchdog = Optional.ofNullable(watchdogProvider.getIfAvailable());
+        }
+        return watchdog;
+    }
+
+    private TransactionMeters meters(TransactionDefinition definition) {
+        final Boundary boundary = new Boundary(definition.getName(), definition.getPropagationBehavior(),
+                definition.getIsolationLevel());
+        final TransactionMeters cached = meters.get(boundary);
+        if (cached != null) {
+            return cached;
+        }
+        return meters.computeIfAbsent(boundary, key -> new TransactionMeters(registry.getObject(), definition));
+    }
+
+    @Value
+    private static class Boundary {
+
+        String name;
+        int propagation;
+        int isolation;
+    }
+
+    private static class InstrumentedTransactionStatus implements TransactionStatus {
+
+        private final TransactionStatus delegate;
+        private final TransactionMeters meters;
+        private final long begun;
+        private final OpenTransaction open;
+
+        private InstrumentedTransactionStatus(TransactionStatus delegate, TransactionMeters meters, long begun,
+                                              OpenTransaction open) {
+            this.delegate = delegate;
+            this.meters = meters;
+            this.begun = begun;
+            this.open = open;
+        }
+
+        private void completed(boolean committed, boolean physical) {
+            final long duration = System.nanoTime() - begun;
+            (committed ? meters.committed : meters.rolledBack).record(duration, TimeUnit.NANOSECONDS);
+            if (physical) {
+                (committed ? meters.commits : meters.rollbacks).increment();
+            }
+        }
+
+        private boolean isPhysical() {
+            return delegate.isNewTransaction() || delegate.hasSavepoint();
+        }
+
+        private boolean isParticipating() {
+            return !isPhysical()
+                    && delegate instanceof DefaultTransactionStatus && ((DefaultTransactionStatus) delegate).hasTransaction();
+        }
+
+        @Override
+        public boolean isNewTransaction() {
+            return delegate.isNewTransaction();
+        }
+
+        @Override
+        public boolean hasSavepoint() {
+            return delegate.hasSavepoint();
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            if (!delegate.isRollbackOnly()) {
+                meters.rollbackOnly.increment();
+            }
+            delegate.setRollbackOnly();
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return delegate.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+            delegate.flush();
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return delegate.isCompleted();
+        }
+
+        @Override
+        public Object createSavepoint() throws TransactionException {
+            return delegate.createSavepoint();
+        }
+
+        @Override
+        public void rollbackToSavepoint(Object savepoint) throws TransactionException {
+            delegate.rollbackToSavepoint(savepoint);
+        }
+
+        @Override
+        public void releaseSavepoint(Object savepoint) throws TransactionException {
+            delegate.releaseSavepoint(savepoint);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.maciej.springtransactions.metrics;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//transaction started and not yet completed, stack of its thread is taken only when somebody asks for it
+public class OpenTransaction {
+
+    private final long id;
+    private final String name;
+    private final String isolation;
+    private final Thread thread;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    //null unless statements are to be cancelled
+    final SessionImplementor session;
+    volatile boolean rollbackRequested;
+    volatile boolean reported;
+
+    OpenTransaction(long id, TransactionDefinition definition, SessionImplementor session) {
+        this.id = id;
+        this.name = definition.getName() == null ? TransactionMeters.UNNAMED : definition.getName();
+        this.isolation = TransactionMeters.isolation(definition.getIsolationLevel());
+        this.thread = Thread.currentThread();
+        this.session = session;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getIsolation() {
+        return isolation;
+    }
+
+    public String getThread() {
+        return thread.getName();
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Duration getDuration() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    public boolean isRollbackRequested() {
+        return rollbackRequested;
+    }
+
+    public List<String> getStackTrace() {
+        return Arrays.stream(stack()).map(StackTraceElement::toString).collect(Collectors.toList());
+    }
+
+    StackTraceElement[] stack() {
+        return thread.getStackTrace();
+    }
+}
@@ -0,0 +1,72 @@
+package com.maciej.springtransactions.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+
+import java.util.Arrays;
+
+//meters of one transaction boundary (name + propagation + isolation), looked up once and reused for every call
+class TransactionMeters {
+
+    static final String UNNAMED = "unnamed";
+
+    final Timer committed;
+    final Timer rolledBack;
+    final Timer begin;
+    final Counter commits;
+    final Counter rollbacks;
+    final Counter rollbackOnly;
+
+    TransactionMeters(MeterRegistry registry, TransactionDefinition definition) {
+        final Tags tags = Tags.of(
+                "propagation", propagation(definition.getPropagationBehavior()),
+                "isolation", isolation(definition.getIsolationLevel()));
+        final Tags boundary = tags.and("name", definition.getName() == null ? UNNAMED : definition.getName());
+
+        this.committed = Timer.builder("transaction.duration")
+                .description("Time from begin to commit or rollback of @Transactional method or TransactionTemplate")
+                .tags(boundary).tag("outcome", "commit")
+                .register(registry);
+        this.rolledBack = Timer.builder("transaction.duration")
+                .description("Time from begin to commit or rollback of @Transactional method or TransactionTemplate")
+                .tags(boundary).tag("outcome", "rollback")
+                .register(registry);
+        this.begin = Timer.builder("transaction.begin")
+                .description("Time to start new transaction, mostly waiting for connection")
+                .tags(tags)
+                .register(registry);
+        this.commits = Counter.builder("transaction.commits")
+                .description("Committed transactions and released savepoints")
+                .tags(tags)
+                .register(registry);
+        this.rollbacks = Counter.builder("transaction.rollbacks")
+                .description("Rolled back transactions and savepoints")
+                .tags(tags)
+                .register(registry);
+        this.rollbackOnly = Counter.builder("transaction.rollback.only")
+                .description("Transactions marked rollback-only, explicitly or by failed participating method")
+                .tags(tags)
+                .register(registry);
+    }
+
+    static String propagation(int value) {
+        return Arrays.stream(Propagation.values())
+                .filter(propagation -> propagation.value() == value)
+                .map(Enum::name)
+                .findFirst()
+                .orElse(String.valueOf(value));
+    }
+
+    static String isolation(int value) {
+        return Arrays.stream(Isolation.values())
+                .filter(isolation -> isolation.value() == value)
+                .map(Enum::name)
+                .findFirst()
+                .orElse(String.valueOf(value));
+    }
+}
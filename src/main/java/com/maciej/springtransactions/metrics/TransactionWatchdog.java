@@ -0,0 +1,109 @@
+package com.maciej.springtransactions.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of transactions started by InstrumentedTransactionManager. Every check-interval transactions open longer
+ * than threshold are logged once with the current stack of their thread, and depending on action:
+ * <ul>
+ *     <li>LOG - nothing more</li>
+ *     <li>ROLLBACK_ONLY - transaction is rolled back instead of committed when its owner finishes, the commit throws
+ *     TransactionTimedOutException</li>
+ *     <li>CANCEL - like ROLLBACK_ONLY, plus running JDBC statement of the JPA session is cancelled</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transaction.watchdog.enabled", matchIfMissing = true)
+public class TransactionWatchdog {
+
+    public enum Action {
+        LOG, ROLLBACK_ONLY, CANCEL
+    }
+
+    private final ConcurrentMap<Long, OpenTransaction> open = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final LongAdder reported = new LongAdder();
+    private final Duration threshold;
+    private final Action action;
+
+    public TransactionWatchdog(@Value("${transaction.watchdog.threshold:5s}") Duration threshold,
+                               @Value("${transaction.watchdog.action:LOG}") Action action) {
+        this.threshold = threshold;
+        this.action = action;
+    }
+
+    OpenTransaction opened(TransactionDefinition definition) {
+        final OpenTransaction transaction = new OpenTransaction(ids.incrementAndGet(), definition,
+                action == Action.CANCEL ? boundSession() : null);
+        open.put(transaction.getId(), transaction);
+        return transaction;
+    }
+
+    void closed(OpenTransaction transaction) {
+        open.remove(transaction.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.watchdog.check-interval-ms:1000}")
+    public void check() {
+        open.values().stream()
+                .filter(transaction -> !transaction.reported && transaction.getDuration().compareTo(threshold) > 0)
+                .forEach(this::report);
+    }
+
+    public List<OpenTransaction> openTransactions() {
+        return open.values().stream()
+                .sorted(Comparator.comparing(OpenTransaction::getStartedAt))
+                .collect(Collectors.toList());
+    }
+
+    public long getReported() {
+        return reported.sum();
+    }
+
+    private void report(OpenTransaction transaction) {
+        transaction.reported = true;
+        final Throwable stack = new Throwable("stack of " + transaction.getThread());
+        stack.setStackTrace(transaction.stack());
+        log.warn("Transaction {} ({}, {}) open for {} ms, action {}", transaction.getName(), transaction.getIsolation(),
+                transaction.getThread(), transaction.getDuration().toMillis(), action, stack);
+
+        if (action != Action.LOG) {
+            transaction.rollbackRequested = true;
+        }
+        if (action == Action.CANCEL && transaction.session != null) {
+            try {
+                transaction.session.getJdbcCoordinator().cancelLastQuery();
+            } catch (RuntimeException ex) {
+                log.warn("Could not cancel statement of transaction {}", transaction.getName(), ex);
+            }
+        }
+        //counted once the action is applied, a caller seeing the count also sees rollbackRequested
+        reported.increment();
+    }
+
+    private static SessionImplementor boundSession() {
+        return TransactionSynchronizationManager.getResourceMap().values().stream()
+                .filter(EntityManagerHolder.class::isInstance)
+                .map(holder -> ((EntityManagerHolder) holder).getEntityManager().unwrap(SessionImplementor.class))
+                .findFirst()
+                .orElse(null);
+    }
+}
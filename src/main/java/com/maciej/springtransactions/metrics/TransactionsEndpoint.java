@@ -0,0 +1,26 @@
+package com.maciej.springtransactions.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//GET /actuator/transactions - transactions open right now, oldest first, with stacks of their threads
+@Component
+@ConditionalOnProperty(name = "transaction.watchdog.enabled", matchIfMissing = true)
+@Endpoint(id = "transactions")
+public class TransactionsEndpoint {
+
+    private final TransactionWatchdog watchdog;
+
+    public TransactionsEndpoint(TransactionWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    @ReadOperation
+    public List<OpenTransaction> openTransactions() {
+        return watchdog.openTransactions();
+    }
+}
@@ -1,23 +1,38 @@
 package com.maciej.springtransactions.model;
 
+import com.maciej.springtransactions.cache.PersonChangeListener;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
+import javax.persistence.Version;
 import java.math.BigDecimal;
 
+//equal when ids are, not all fields: money and version change while it's the same person
 @Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person")
+@EntityListeners(PersonChangeListener.class)
 public class Person {
 
     @Id
+    @EqualsAndHashCode.Include
     private String name;
     private String surname;
     private BigDecimal money;
+    @Version
+    private long version;
 }
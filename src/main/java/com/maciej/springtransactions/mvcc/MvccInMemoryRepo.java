@@ -0,0 +1,332 @@
+package com.maciej.springtransactions.mvcc;
+
+import com.maciej.springtransactions.cache.PersonChangedEvent;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.repository.LockWait;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.beans.PropertyDescriptor;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+//InMemoryRepo backed by MvccStore instead of JPA, same semantics as SimpleJpaRepository + Person's @Version:
+// saving a person with stale version fails, bulk operations (addMoney, deleteInBatch) don't check versions,
+// query by example is evaluated over the snapshot the way JPA builds its criteria
+@Repository
+@Profile("mvcc")
+@Transactional(isolation = Isolation.READ_UNCOMMITTED)
+public class MvccInMemoryRepo implements InMemoryRepo {
+
+    private final MvccStore store;
+    private final ApplicationEventPublisher publisher;
+
+    public MvccInMemoryRepo(MvccStore store, ApplicationEventPublisher publisher) {
+        this.store = store;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public List<Person> findBySurname(String surname) {
+        return store.readAll(store.currentTransaction())
+                .filter(person -> Objects.equals(surname, person.getSurname()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Person> findBySurnameAndNameGreaterThanOrderByNameAsc(String surname, String after, Pageable page) {
+        return store.readAll(store.currentTransaction())
+                .filter(person -> Objects.equals(surname, person.getSurname()) && person.getName().compareTo(after) > 0)
+                .sorted(Comparator.comparing(Person::getName))
+                .limit(page.getPageSize())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int addMoney(String id, BigDecimal deposit) {
+        final Person updated = store.write(store.currentTransaction(), id, current -> current == null ? null
+                : current.toBuilder()
+                .money(current.getMoney() == null ? null : current.getMoney().add(deposit))
+                .version(current.getVersion() + 1)
+                .build());
+        return updated == null ? 0 : 1;
+    }
+
+    @Override
+    public Optional<Person> findByIdForUpdate(String id, LockWait wait) {
+        return Optional.ofNullable(store.readForUpdate(store.currentTransaction(), id, wait.getTimeout(), wait.isSkipLocked()));
+    }
+
+    @Override
+    public Optional<BigDecimal> findMoneyById(String id) {
+        return findById(id).map(Person::getMoney);
+    }
+
+    @Override
+    public <S extends Person> S save(S entity) {
+        final MvccTransaction tx = store.currentTransaction();
+        final boolean written = tx.hasWritten(entity.getName());
+        final Person saved = store.write(tx, entity.getName(), current -> {
+            if (current == null) {
+                return entity.toBuilder().version(0).build();
+            }
+            //own earlier write is newer than the copy caller got from findById, JPA would update managed entity in place
+            if (!written && current.getVersion() != entity.getVersion()) {
+                throw new ObjectOptimisticLockingFailureException(Person.class, entity.getName());
+            }
+            //Person equals compares ids only, unchanged state keeps its version like a JPA flush without dirty fields
+            final boolean unchanged = Objects.equals(entity.getSurname(), current.getSurname())
+                    && sameAmount(entity.getMoney(), current.getMoney());
+            return unchanged ? current : entity.toBuilder().version(current.getVersion() + 1).build();
+        });
+        publisher.publishEvent(new PersonChangedEvent(saved.getName()));
+        @SuppressWarnings("unchecked") final S result = (S) saved;
+        return result;
+    }
+
+    @Override
+    public <S extends Person> List<S> saveAll(Iterable<S> entities) {
+        return stream(entities).map(this::save).collect(Collectors.toList());
+    }
+
+    @Override
+    public <S extends Person> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public void flush() {
+        //writes go to the store right away
+    }
+
+    @Override
+    public Optional<Person> findById(String id) {
+        return Optional.ofNullable(store.read(store.currentTransaction(), id));
+    }
+
+    @Override
+    public Person getOne(String id) {
+        return findById(id).orElseThrow(() -> new ObjectRetrievalFailureException(Person.class, id));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return findById(id).isPresent();
+    }
+
+    @Override
+    public List<Person> findAll() {
+        return store.readAll(store.currentTransaction()).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Person> findAll(Sort sort) {
+        return store.readAll(store.currentTransaction()).sorted(comparator(sort)).collect(Collectors.toList());
+    }
+
+    @Override
+    public Page<Person> findAll(Pageable pageable) {
+        return page(findAll(pageable.getSort()), pageable);
+    }
+
+    @Override
+    public List<Person> findAllById(Iterable<String> ids) {
+        final MvccTransaction tx = store.currentTransaction();
+        return stream(ids).map(id -> store.read(tx, id)).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return store.readAll(store.currentTransaction()).count();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        delete(findById(id).orElseThrow(() -> new EmptyResultDataAccessException(
+                String.format("No %s entity with id %s exists!", Person.class, id), 1)));
+    }
+
+    @Override
+    public void delete(Person entity) {
+        final MvccTransaction tx = store.currentTransaction();
+        final boolean written = tx.hasWritten(entity.getName());
+        store.write(tx, entity.getName(), current -> {
+            if (current != null && !written && current.getVersion() != entity.getVersion()) {
+                throw new ObjectOptimisticLockingFailureException(Person.class, entity.getName());
+            }
+            return null;
+        });
+        publisher.publishEvent(new PersonChangedEvent(entity.getName()));
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Person> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        findAll().forEach(this::delete);
+    }
+
+    @Override
+    public void deleteInBatch(Iterable<Person> entities) {
+        final MvccTransaction tx = store.currentTransaction();
+        entities.forEach(person -> {
+            store.write(tx, person.getName(), current -> null);
+            publisher.publishEvent(new PersonChangedEvent(person.getName()));
+        });
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteInBatch(findAll());
+    }
+
+    @Override
+    public <S extends Person> Optional<S> findOne(Example<S> example) {
+        final List<S> found = findAll(example);
+        if (found.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, found.size());
+        }
+        return found.stream().findFirst();
+    }
+
+    @Override
+    public <S extends Person> List<S> findAll(Example<S> example) {
+        return cast(store.readAll(store.currentTransaction()).filter(matching(example)).collect(Collectors.toList()));
+    }
+
+    @Override
+    public <S extends Person> List<S> findAll(Example<S> example, Sort sort) {
+        return cast(store.readAll(store.currentTransaction()).filter(matching(example)).sorted(comparator(sort))
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public <S extends Person> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return page(findAll(example, pageable.getSort()), pageable);
+    }
+
+    @Override
+    public <S extends Person> long count(Example<S> example) {
+        return store.readAll(store.currentTransaction()).filter(matching(example)).count();
+    }
+
+    @Override
+    public <S extends Person> boolean exists(Example<S> example) {
+        return store.readAll(store.currentTransaction()).anyMatch(matching(example));
+    }
+
+    //same rules as Spring Data JPA's QueryByExamplePredicateBuilder: every non-ignored property of the probe that is
+    // not null (primitive version included) must match, or any of them with matchingAny
+    private static <S extends Person> Predicate<Person> matching(Example<S> example) {
+        final ExampleMatcherAccessor matcher = new ExampleMatcherAccessor(example.getMatcher());
+        final BeanWrapper probe = PropertyAccessorFactory.forBeanPropertyAccess(example.getProbe());
+        final List<Predicate<Person>> criteria = new ArrayList<>();
+        for (PropertyDescriptor property : probe.getPropertyDescriptors()) {
+            final String path = property.getName();
+            if ("class".equals(path) || matcher.isIgnoredPath(path)) {
+                continue;
+            }
+            final Object expected = matcher.getValueTransformerForPath(path)
+                    .apply(Optional.ofNullable(probe.getPropertyValue(path))).orElse(null);
+            if (expected == null) {
+                if (matcher.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                    criteria.add(person -> PropertyAccessorFactory.forBeanPropertyAccess(person).getPropertyValue(path) == null);
+                }
+                continue;
+            }
+            criteria.add(person -> matches(matcher, path, expected,
+                    PropertyAccessorFactory.forBeanPropertyAccess(person).getPropertyValue(path)));
+        }
+        return criteria.stream()
+                .reduce(example.getMatcher().isAllMatching() ? Predicate::and : Predicate::or)
+                .orElse(person -> true);
+    }
+
+    //by value like Hibernate's dirty check, 10 = 10.00
+    private static boolean sameAmount(BigDecimal money, BigDecimal other) {
+        return money == null ? other == null : other != null && money.compareTo(other) == 0;
+    }
+
+    private static boolean matches(ExampleMatcherAccessor matcher, String path, Object expected, Object actual) {
+        if (actual == null) {
+            return false;
+        }
+        if (!(expected instanceof String)) {
+            //numeric columns compare by value, 10 = 10.00
+            return expected instanceof BigDecimal && actual instanceof BigDecimal
+                    ? ((BigDecimal) expected).compareTo((BigDecimal) actual) == 0
+                    : expected.equals(actual);
+        }
+        final boolean ignoreCase = matcher.isIgnoreCaseForPath(path);
+        final String value = ignoreCase ? ((String) expected).toLowerCase() : (String) expected;
+        final String candidate = ignoreCase ? actual.toString().toLowerCase() : actual.toString();
+        switch (matcher.getStringMatcherForPath(path)) {
+            case DEFAULT:
+            case EXACT:
+                return candidate.equals(value);
+            case CONTAINING:
+                return candidate.contains(value);
+            case STARTING:
+                return candidate.startsWith(value);
+            case ENDING:
+                return candidate.endsWith(value);
+            default:
+                throw new IllegalArgumentException("Unsupported StringMatcher " + matcher.getStringMatcherForPath(path));
+        }
+    }
+
+    private static <S extends Person> Page<S> page(List<S> all, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        final int from = (int) Math.min(pageable.getOffset(), all.size());
+        final int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(all.subList(from, to), pageable, all.size());
+    }
+
+    //the store only holds Person, S is Person itself
+    @SuppressWarnings("unchecked")
+    private static <S extends Person> List<S> cast(List<Person> persons) {
+        return (List<S>) persons;
+    }
+
+    private static Comparator<Person> comparator(Sort sort) {
+        return sort.stream()
+                .map(order -> (Comparator<Person>) new PropertyComparator<Person>(order.getProperty(), order.isIgnoreCase(), order.isAscending()))
+                .reduce(Comparator::thenComparing)
+                .orElse((first, second) -> 0);
+    }
+
+    private static <T> Stream<T> stream(Iterable<T> iterable) {
+        return StreamSupport.stream(iterable.spliterator(), false);
+    }
+}
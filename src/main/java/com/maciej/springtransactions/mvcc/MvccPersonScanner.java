@@ -0,0 +1,50 @@
+package com.maciej.springtransactions.mvcc;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.PersonScanner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+//store hands out copies anyway, scan just doesn't collect them
+@Component
+@Profile("mvcc")
+public class MvccPersonScanner implements PersonScanner {
+
+    private final MvccStore store;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public MvccPersonScanner(MvccStore store, PlatformTransactionManager transactionManager) {
+        this.store = store;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setName(MvccPersonScanner.class.getName() + ".scan");
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public long forEach(Consumer<Person> consumer) {
+        return readOnlyTransaction.execute(status -> scan(store.readAll(store.currentTransaction()), consumer));
+    }
+
+    @Override
+    public long forEachWithSurname(String surname, Consumer<Person> consumer) {
+        return readOnlyTransaction.execute(status -> scan(store.readAll(store.currentTransaction())
+                .filter(person -> Objects.equals(surname, person.getSurname())), consumer));
+    }
+
+    private long scan(Stream<Person> persons, Consumer<Person> consumer) {
+        long count = 0;
+        final Iterator<Person> iterator = persons.iterator();
+        while (iterator.hasNext()) {
+            consumer.accept(iterator.next());
+            count++;
+        }
+        return count;
+    }
+}
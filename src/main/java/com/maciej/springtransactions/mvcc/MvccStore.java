@@ -0,0 +1,328 @@
+package com.maciej.springtransactions.mvcc;
+
+import com.maciej.springtransactions.model.Person;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.CannotSerializeTransactionException;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * In-process multi-version store of persons. Every row keeps a chain of committed versions (newest first) and at most
+ * one uncommitted version of the transaction holding its write lock. Reads never block, they only pick a version:
+ * <ul>
+ *     <li>READ_UNCOMMITTED - uncommitted version if there is one, otherwise the newest committed</li>
+ *     <li>READ_COMMITTED (and DEFAULT) - the newest committed</li>
+ *     <li>REPEATABLE_READ - the newest committed when the transaction began</li>
+ *     <li>SERIALIZABLE - like REPEATABLE_READ, but read rows are also share-locked until the end of transaction</li>
+ * </ul>
+ * Writers take an exclusive row lock and give up with {@link CannotAcquireLockException} after lockTimeout.
+ * REPEATABLE_READ and SERIALIZABLE writers fail with {@link CannotSerializeTransactionException} when the row was
+ * committed by someone else after their snapshot. There are no predicate locks, so new rows don't conflict with readers.
+ */
+public class MvccStore {
+
+    static final long UNCOMMITTED = Long.MAX_VALUE;
+
+    private final ConcurrentHashMap<String, Row> rows = new ConcurrentHashMap<>();
+    //commit timestamps are published only after all versions of a commit are installed, so snapshots never see half of it
+    private volatile long clock;
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Set<MvccTransaction> snapshots = ConcurrentHashMap.newKeySet();
+    private final long lockTimeoutNanos;
+
+    public MvccStore(Duration lockTimeout) {
+        this.lockTimeoutNanos = lockTimeout.toNanos();
+    }
+
+    public MvccTransaction begin(int isolation) {
+        final MvccTransaction tx = new MvccTransaction(
+                isolation == TransactionDefinition.ISOLATION_DEFAULT ? TransactionDefinition.ISOLATION_READ_COMMITTED : isolation);
+        if (tx.readsSnapshot()) {
+            //taken under commit lock, so pruning in a concurrent commit already sees this snapshot
+            commitLock.lock();
+            try {
+                tx.snapshot = clock;
+                snapshots.add(tx);
+            } finally {
+                commitLock.unlock();
+            }
+        }
+        return tx;
+    }
+
+    public MvccTransaction currentTransaction() {
+        final MvccTransaction tx = (MvccTransaction) TransactionSynchronizationManager.getResource(this);
+        if (tx == null) {
+            throw new IllegalTransactionStateException("No MVCC transaction bound to thread");
+        }
+        return tx;
+    }
+
+    public Person read(MvccTransaction tx, String id) {
+        final Version own = tx.writes.get(id);
+        if (own != null) {
+            return copy(own.person);
+        }
+        final Row row = rows.get(id);
+        if (row == null) {
+            return null;
+        }
+        if (tx.getIsolation() == TransactionDefinition.ISOLATION_SERIALIZABLE && !lockShared(tx, row)) {
+            return null;
+        }
+        final Version visible = visible(tx, row);
+        return visible == null ? null : copy(visible.person);
+    }
+
+    //lazy and weakly consistent, doesn't copy the whole store
+    public Stream<Person> readAll(MvccTransaction tx) {
+        return rows.keySet().stream()
+                .map(id -> read(tx, id))
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Locks the row and replaces its state with the result of change, which gets a copy of the current state
+     * (own uncommitted write or the newest committed version, null when the row doesn't exist) and returns the new one
+     * (null deletes the row). Returning the argument itself leaves the row untouched.
+     */
+    public Person write(MvccTransaction tx, String id, UnaryOperator<Person> change) {
+        final Row row = lockExclusive(tx, id, System.nanoTime() + lockTimeoutNanos, false);
+        final Person current = lockedState(tx, row);
+        final Person next = change.apply(current);
+        if (next == current) {
+            return copy(current);
+        }
+        final Version pending = new Version(copy(next), UNCOMMITTED, null);
+        tx.writes.put(id, pending);
+        row.pending = pending;
+        return copy(next);
+    }
+
+    /**
+     * Exclusive row lock without a change, like SELECT ... FOR UPDATE: waits at most wait for other writers and
+     * readers, or with skipLocked returns null at once when someone else holds the row. Returns the state write would
+     * pass to its change.
+     */
+    public Person readForUpdate(MvccTransaction tx, String id, Duration wait, boolean skipLocked) {
+        final Row row = lockExclusive(tx, id, System.nanoTime() + wait.toNanos(), skipLocked);
+        return row == null ? null : lockedState(tx, row);
+    }
+
+    //own uncommitted write or the newest committed version, which snapshot isolations may only see if it's in the snapshot
+    private Person lockedState(MvccTransaction tx, Row row) {
+        final Version head = row.head;
+        if (tx.readsSnapshot() && head != null && head.commitTs > tx.snapshot) {
+            throw new CannotSerializeTransactionException(
+                    "Person " + row.id + " was changed by a transaction committed after this one began");
+        }
+        final Version own = tx.writes.get(row.id);
+        return copy(own != null ? own.person : head == null ? null : head.person);
+    }
+
+    public void commit(MvccTransaction tx) {
+        try {
+            if (!tx.writes.isEmpty()) {
+                commitLock.lock();
+                try {
+                    final long commitTs = clock + 1;
+                    tx.writes.forEach((id, pending) -> {
+                        final Row row = rows.get(id);
+                        row.head = new Version(pending.person, commitTs, row.head);
+                    });
+                    clock = commitTs;
+                    final long oldest = oldestSnapshot();
+                    tx.writes.keySet().forEach(id -> prune(rows.get(id), oldest));
+                } finally {
+                    commitLock.unlock();
+                }
+            }
+        } finally {
+            end(tx);
+        }
+    }
+
+    public void rollback(MvccTransaction tx) {
+        end(tx);
+    }
+
+    public Object createSavepoint(MvccTransaction tx) {
+        return new HashMap<>(tx.writes);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void rollbackToSavepoint(MvccTransaction tx, Object savepoint) {
+        final Map<String, Version> saved = (Map<String, Version>) savepoint;
+        //row locks taken after the savepoint are kept until the end of transaction, like in most databases
+        tx.writes.keySet().forEach(id -> rows.get(id).pending = saved.get(id));
+        tx.writes.clear();
+        tx.writes.putAll(saved);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    private Version visible(MvccTransaction tx, Row row) {
+        switch (tx.getIsolation()) {
+            case TransactionDefinition.ISOLATION_READ_UNCOMMITTED:
+                final Version pending = row.pending;
+                return pending != null ? pending : row.head;
+            case TransactionDefinition.ISOLATION_READ_COMMITTED:
+                return row.head;
+            default:
+                Version version = row.head;
+                while (version != null && version.commitTs > tx.snapshot) {
+                    version = version.previous;
+                }
+                return version;
+        }
+    }
+
+    //null when the row is held by someone else and skipLocked is set
+    private Row lockExclusive(MvccTransaction tx, String id, long deadline, boolean skipLocked) {
+        while (true) {
+            final Row row = rows.computeIfAbsent(id, Row::new);
+            synchronized (row) {
+                if (row.removed) {
+                    continue;
+                }
+                while ((row.writer != null && row.writer != tx) || row.hasReadersOtherThan(tx)) {
+                    if (skipLocked) {
+                        return null;
+                    }
+                    await(row, deadline);
+                }
+                if (row.writer == null) {
+                    row.writer = tx;
+                    tx.locked.add(row);
+                }
+                return row;
+            }
+        }
+    }
+
+    //false when row disappeared in the meantime, it was deleted and nobody can see it anymore
+    private boolean lockShared(MvccTransaction tx, Row row) {
+        final long deadline = System.nanoTime() + lockTimeoutNanos;
+        synchronized (row) {
+            if (row.removed) {
+                return false;
+            }
+            while (row.writer != null && row.writer != tx) {
+                await(row, deadline);
+            }
+            if (row.readers.add(tx)) {
+                tx.locked.add(row);
+            }
+            return true;
+        }
+    }
+
+    private void await(Row row, long deadline) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new CannotAcquireLockException("Lock wait timeout exceeded for person " + row.id);
+        }
+        try {
+            row.wait(Math.max(1, remaining / 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for lock on person " + row.id);
+        }
+    }
+
+    private void end(MvccTransaction tx) {
+        snapshots.remove(tx);
+        final long oldest = oldestSnapshot();
+        for (Row row : tx.locked) {
+            synchronized (row) {
+                if (row.writer == tx) {
+                    row.writer = null;
+                    row.pending = null;
+                }
+                row.readers.remove(tx);
+                if (row.writer == null && row.readers.isEmpty() && isDead(row, oldest)) {
+                    row.removed = true;
+                    rows.remove(row.id, row);
+                }
+                row.notifyAll();
+            }
+        }
+        tx.locked.clear();
+        tx.writes.clear();
+    }
+
+    //versions older than the newest one visible to the oldest snapshot can't be read by anybody
+    private void prune(Row row, long oldest) {
+        Version version = row.head;
+        while (version != null && version.commitTs > oldest) {
+            version = version.previous;
+        }
+        if (version != null) {
+            version.previous = null;
+        }
+    }
+
+    private boolean isDead(Row row, long oldest) {
+        final Version head = row.head;
+        return head == null || (head.person == null && head.commitTs <= oldest);
+    }
+
+    private long oldestSnapshot() {
+        long oldest = clock;
+        for (MvccTransaction tx : snapshots) {
+            oldest = Math.min(oldest, tx.snapshot);
+        }
+        return oldest;
+    }
+
+    private static Person copy(Person person) {
+        return person == null ? null : person.toBuilder().build();
+    }
+
+    static final class Version {
+
+        //null for delete
+        final Person person;
+        final long commitTs;
+        volatile Version previous;
+
+        Version(Person person, long commitTs, Version previous) {
+            this.person = person;
+            this.commitTs = commitTs;
+            this.previous = previous;
+        }
+    }
+
+    static final class Row {
+
+        final String id;
+        volatile Version head;
+        volatile Version pending;
+        //guarded by this
+        MvccTransaction writer;
+        final Set<MvccTransaction> readers = new HashSet<>();
+        boolean removed;
+
+        Row(String id) {
+            this.id = id;
+        }
+
+        boolean hasReadersOtherThan(MvccTransaction tx) {
+            return !readers.isEmpty() && !(readers.size() == 1 && readers.contains(tx));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.maciej.springtransactions.mvcc;
+
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+//state of one transaction against MvccStore, confined to the thread it is bound to
+public class MvccTransaction {
+
+    static final long NO_SNAPSHOT = -1;
+
+    private final int isolation;
+    long snapshot = NO_SNAPSHOT;
+    //own uncommitted writes, null person is a delete
+    final Map<String, MvccStore.Version> writes = new LinkedHashMap<>();
+    final Set<MvccStore.Row> locked = new HashSet<>();
+    private boolean rollbackOnly;
+
+    MvccTransaction(int isolation) {
+        this.isolation = isolation;
+    }
+
+    public int getIsolation() {
+        return isolation;
+    }
+
+    public boolean hasWritten(String id) {
+        return writes.containsKey(id);
+    }
+
+    boolean readsSnapshot() {
+        return isolation == TransactionDefinition.ISOLATION_REPEATABLE_READ
+                || isolation == TransactionDefinition.ISOLATION_SERIALIZABLE;
+    }
+
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+}
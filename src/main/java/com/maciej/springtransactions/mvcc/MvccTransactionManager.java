@@ -0,0 +1,105 @@
+package com.maciej.springtransactions.mvcc;
+
+import org.springframework.transaction.SavepointManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//binds MvccTransaction to the thread the same way DataSourceTransactionManager binds a connection,
+// so all propagation modes (NESTED through savepoints) are handled by AbstractPlatformTransactionManager
+public class MvccTransactionManager extends AbstractPlatformTransactionManager {
+
+    private final MvccStore store;
+
+    public MvccTransactionManager(MvccStore store) {
+        this.store = store;
+        setNestedTransactionAllowed(true);
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new MvccTransactionObject((MvccTransaction) TransactionSynchronizationManager.getResource(store));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((MvccTransactionObject) transaction).tx != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        final MvccTransactionObject txObject = (MvccTransactionObject) transaction;
+        txObject.tx = store.begin(definition.getIsolationLevel());
+        TransactionSynchronizationManager.bindResource(store, txObject.tx);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        ((MvccTransactionObject) transaction).tx = null;
+        return TransactionSynchronizationManager.unbindResource(store);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(store, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        store.commit(tx(status));
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        store.rollback(tx(status));
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        tx(status).setRollbackOnly();
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(store);
+    }
+
+    private static MvccTransaction tx(DefaultTransactionStatus status) {
+        return ((MvccTransactionObject) status.getTransaction()).tx;
+    }
+
+    private class MvccTransactionObject implements SmartTransactionObject, SavepointManager {
+
+        private MvccTransaction tx;
+
+        private MvccTransactionObject(MvccTransaction tx) {
+            this.tx = tx;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return tx.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public Object createSavepoint() throws TransactionException {
+            return store.createSavepoint(tx);
+        }
+
+        @Override
+        public void rollbackToSavepoint(Object savepoint) throws TransactionException {
+            store.rollbackToSavepoint(tx, savepoint);
+        }
+
+        @Override
+        public void releaseSavepoint(Object savepoint) throws TransactionException {
+        }
+    }
+}
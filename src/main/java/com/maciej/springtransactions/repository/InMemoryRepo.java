@@ -1,18 +1,48 @@
 package com.maciej.springtransactions.repository;
 
 import com.maciej.springtransactions.model.Person;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
 @Transactional(isolation = Isolation.READ_UNCOMMITTED)
-public interface InMemoryRepo extends JpaRepository<Person, String> {
+public interface InMemoryRepo extends JpaRepository<Person, String>, PersonLocking, PersonBulkDelete {
 
+    //query cache keeps ids of the result, any committed write to person table makes it stale
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "person-by-surname")})
     List<Person> findBySurname(String surname);
 
+    //keyset page: persons after the last name of previous page, no OFFSET scanning over skipped rows
+    List<Person> findBySurnameAndNameGreaterThanOrderByNameAsc(String surname, String after, Pageable page);
+
+    //single UPDATE evaluated by the database, no read-modify-write so concurrent deposits can't overwrite each other
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Person p set p.money = p.money + :deposit, p.version = p.version + 1 where p.name = :id")
+    int addMoney(@Param("id") String id, @Param("deposit") BigDecimal deposit);
+
+    @Query("select p.money from Person p where p.name = :id")
+    Optional<BigDecimal> findMoneyById(@Param("id") String id);
+
+    default BigDecimal addMoneyAndGet(String id, BigDecimal deposit) {
+        addMoney(id, deposit);
+        return findMoneyById(id).orElseThrow();
+    }
 
 }
@@ -0,0 +1,90 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+import org.hibernate.CacheMode;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+//findAll/findBySurname build the whole list and keep every entity managed until transaction ends.
+//Scanner reads rows through a cursor (fetchSize rows per round trip) and detaches each person before handing it over,
+//so memory doesn't depend on number of rows. Scanned persons are not put in the second-level cache either.
+//Persons the caller's transaction already had managed come back as the same instances and stay managed,
+//caller's changes to them are still flushed.
+@Component
+@Profile("!mvcc")
+public class JpaPersonScanner implements PersonScanner {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+
+    public JpaPersonScanner(EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${streaming.fetch-size:500}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setName(JpaPersonScanner.class.getName() + ".scan");
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public long forEach(Consumer<Person> consumer) {
+        return readOnlyTransaction.execute(status ->
+                scan(entityManager.createQuery("select p from Person p", Person.class), consumer));
+    }
+
+    @Override
+    public long forEachWithSurname(String surname, Consumer<Person> consumer) {
+        return readOnlyTransaction.execute(status ->
+                scan(entityManager.createQuery("select p from Person p where p.surname = :surname", Person.class)
+                        .setParameter("surname", surname), consumer));
+    }
+
+    private long scan(TypedQuery<Person> query, Consumer<Person> consumer) {
+        query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_CACHEABLE, false)
+                .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE);
+
+        final Set<Object> managedBefore = managedEntities();
+        long count = 0;
+        try (Stream<Person> persons = query.getResultStream()) {
+            final Iterator<Person> iterator = persons.iterator();
+            while (iterator.hasNext()) {
+                final Person person = iterator.next();
+                if (!managedBefore.contains(person)) {
+                    entityManager.detach(person);
+                }
+                consumer.accept(person);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //by identity, Person equals compares ids
+    private Set<Object> managedEntities() {
+        final Set<Object> managed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Object, ?> entry : entityManager.unwrap(SessionImplementor.class).getPersistenceContext()
+                .reentrantSafeEntityEntries()) {
+            managed.add(entry.getKey());
+        }
+        return managed;
+    }
+}
@@ -0,0 +1,38 @@
+package com.maciej.springtransactions.repository;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.hibernate.LockOptions;
+
+import java.time.Duration;
+
+//how long a locking lookup waits for a row another transaction holds, see PersonLocking
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LockWait {
+
+    //fails at once
+    public static final LockWait NOWAIT = new LockWait(LockOptions.NO_WAIT);
+    //finds nothing instead of waiting
+    public static final LockWait SKIP_LOCKED = new LockWait(LockOptions.SKIP_LOCKED);
+
+    //javax.persistence.lock.timeout value: milliseconds, or Hibernate's constants for NOWAIT and SKIP LOCKED
+    long timeoutMillis;
+
+    public static LockWait timeout(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Lock timeout can't be negative: " + timeout);
+        }
+        return timeout.isZero() ? NOWAIT : new LockWait(timeout.toMillis());
+    }
+
+    public boolean isSkipLocked() {
+        return timeoutMillis == LockOptions.SKIP_LOCKED;
+    }
+
+    //zero for NOWAIT and SKIP LOCKED
+    public Duration getTimeout() {
+        return Duration.ofMillis(Math.max(timeoutMillis, 0));
+    }
+}
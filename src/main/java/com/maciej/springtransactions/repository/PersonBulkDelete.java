@@ -0,0 +1,12 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+
+//InMemoryRepo fragment replacing JpaRepository's batch deletes, which run one bulk DELETE that skips entity listeners.
+//These announce the deleted persons like a single delete does, so PersonCache doesn't keep serving them
+public interface PersonBulkDelete {
+
+    void deleteInBatch(Iterable<Person> entities);
+
+    void deleteAllInBatch();
+}
@@ -0,0 +1,46 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.cache.AllPersonsChangedEvent;
+import com.maciej.springtransactions.cache.PersonChangedEvent;
+import com.maciej.springtransactions.model.Person;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+//bulk JPQL deletes, Hibernate still invalidates its second-level cache regions for them
+@Transactional
+public class PersonBulkDeleteImpl implements PersonBulkDelete {
+
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher publisher;
+
+    public PersonBulkDeleteImpl(EntityManager entityManager, ApplicationEventPublisher publisher) {
+        this.entityManager = entityManager;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void deleteInBatch(Iterable<Person> entities) {
+        final List<String> ids = StreamSupport.stream(entities.spliterator(), false)
+                .map(Person::getName)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+        entityManager.createQuery("delete from Person p where p.name in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        ids.forEach(id -> publisher.publishEvent(new PersonChangedEvent(id)));
+    }
+
+    //which persons were deleted isn't known without reading them first
+    @Override
+    public void deleteAllInBatch() {
+        entityManager.createQuery("delete from Person").executeUpdate();
+        publisher.publishEvent(new AllPersonsChangedEvent());
+    }
+}
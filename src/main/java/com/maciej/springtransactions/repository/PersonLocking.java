@@ -0,0 +1,17 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+
+import java.util.Optional;
+
+//InMemoryRepo fragment for pessimistic locking, meant to be called inside a transaction
+public interface PersonLocking {
+
+    /**
+     * Reads the person with an exclusive row lock (SELECT ... FOR UPDATE), held until the surrounding transaction
+     * ends, so nobody else changes the row between this read and the write based on it. When another transaction
+     * holds the row this waits as long as wait allows and then throws PessimisticLockingFailureException, except
+     * for SKIP_LOCKED which returns empty at once. Only this row is locked, unlike a SERIALIZABLE transaction.
+     */
+    Optional<Person> findByIdForUpdate(String id, LockWait wait);
+}
@@ -0,0 +1,116 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+import org.h2.api.ErrorCode;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.dao.CannotAcquireLockException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * PESSIMISTIC_WRITE find. Hibernate renders NOWAIT and SKIP LOCKED where the dialect has them (MySQL 8). A lock
+ * timeout has no SQL syntax there, innodb_lock_wait_timeout (whole seconds) is set on the session for the lookup.
+ * H2 1.4 ignores NOWAIT and has no SKIP LOCKED, so the row is locked first with plain JDBC under a LOCK_TIMEOUT
+ * (1ms for both), then loaded by Hibernate. H2 retries a timed out lock a few times, so it waits a bit longer than asked.
+ */
+public class PersonLockingImpl implements PersonLocking {
+
+    private static final String LOCK_ROW = "select name from person where name = ? for update";
+
+    private enum Database {H2, MYSQL, OTHER}
+
+    private final EntityManager entityManager;
+    private final Database database;
+
+    public PersonLockingImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        final Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        this.database = dialect instanceof H2Dialect ? Database.H2
+                : dialect instanceof MySQLDialect ? Database.MYSQL
+                : Database.OTHER;
+    }
+
+    @Override
+    public Optional<Person> findByIdForUpdate(String id, LockWait wait) {
+        final Session session = entityManager.unwrap(Session.class);
+        if (database == Database.H2) {
+            //the row is already ours, a plain PESSIMISTIC_WRITE load reuses Hibernate's cached loader
+            return session.doReturningWork(connection -> lockH2Row(connection, id, wait))
+                    ? Optional.ofNullable(entityManager.find(Person.class, id, LockModeType.PESSIMISTIC_WRITE))
+                    : Optional.empty();
+        }
+        if (database == Database.MYSQL && !wait.getTimeout().isZero()) {
+            final long seconds = (wait.getTimeout().toMillis() + 999) / 1000;
+            final long previous = session.doReturningWork(connection -> swapInnodbLockWaitTimeout(connection, seconds));
+            try {
+                return find(id, wait);
+            } finally {
+                session.doWork(connection -> swapInnodbLockWaitTimeout(connection, previous));
+            }
+        }
+        return find(id, wait);
+    }
+
+    private Optional<Person> find(String id, LockWait wait) {
+        return Optional.ofNullable(entityManager.find(Person.class, id, LockModeType.PESSIMISTIC_WRITE,
+                Map.of(AvailableSettings.JPA_LOCK_TIMEOUT, wait.getTimeoutMillis())));
+    }
+
+    //false when skipped. The lock timeout doesn't break the pooled connection, see LockTimeoutExceptionOverride
+    private boolean lockH2Row(Connection connection, String id, LockWait wait) throws SQLException {
+        final long previous;
+        try (Statement statement = connection.createStatement(); ResultSet current = statement.executeQuery("call lock_timeout()")) {
+            current.next();
+            previous = current.getLong(1);
+        }
+        setH2LockTimeout(connection, Math.max(wait.getTimeout().toMillis(), 1));
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_ROW)) {
+            statement.setString(1, id);
+            statement.executeQuery().close();
+            return true;
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ErrorCode.LOCK_TIMEOUT_1) {
+                throw e;
+            }
+            if (wait.isSkipLocked()) {
+                return false;
+            }
+            throw new CannotAcquireLockException("Person " + id + " is locked by another transaction", e);
+        } finally {
+            setH2LockTimeout(connection, previous);
+        }
+    }
+
+    private void setH2LockTimeout(Connection connection, long millis) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("set lock_timeout " + millis);
+        }
+    }
+
+    //returns the previous value
+    private long swapInnodbLockWaitTimeout(Connection connection, long seconds) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            final long previous;
+            try (ResultSet current = statement.executeQuery("select @@session.innodb_lock_wait_timeout")) {
+                current.next();
+                previous = current.getLong(1);
+            }
+            statement.execute("set session innodb_lock_wait_timeout = " + seconds);
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+
+import java.util.function.Consumer;
+
+//constant memory alternative to findAll/findBySurname, consumer gets detached persons one by one
+public interface PersonScanner {
+
+    long forEach(Consumer<Person> consumer);
+
+    long forEachWithSurname(String surname, Consumer<Person> consumer);
+}
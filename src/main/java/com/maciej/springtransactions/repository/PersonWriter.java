@@ -0,0 +1,31 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * How services write persons. By default every write is flushed right away (saveAndFlush), so a multi-step transaction
+ * pays a round trip per step. With persistence.deferred-flush=true writes stay in the persistence context and go out
+ * together at commit or before a query touching persons (Hibernate's AUTO flush).
+ * Version conflicts and constraint violations then surface at that point instead of at the write.
+ */
+@Component
+public class PersonWriter {
+
+    private final InMemoryRepo repo;
+    private final boolean deferred;
+
+    public PersonWriter(InMemoryRepo repo, @Value("${persistence.deferred-flush:false}") boolean deferred) {
+        this.repo = repo;
+        this.deferred = deferred;
+    }
+
+    public Person save(Person person) {
+        return deferred ? repo.save(person) : repo.saveAndFlush(person);
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+}
@@ -0,0 +1,71 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+import io.r2dbc.spi.Row;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Non-blocking counterpart of {@link InMemoryRepo} for the deposit path, plain SQL over R2DBC on the person table
+ * Hibernate created. Calls join the reactive transaction of the subscriber context (TransactionalOperator) when
+ * there is one, otherwise every statement autocommits.
+ */
+public class ReactivePersonRepo {
+
+    private final DatabaseClient client;
+
+    public ReactivePersonRepo(DatabaseClient client) {
+        this.client = client;
+    }
+
+    public Mono<Person> findById(String id) {
+        return client.execute("select name, surname, money, version from person where name = :id")
+                .bind("id", id)
+                .map(ReactivePersonRepo::person)
+                .one();
+    }
+
+    public Flux<Person> findBySurname(String surname) {
+        return client.execute("select name, surname, money, version from person where surname = :surname")
+                .bind("surname", surname)
+                .map(ReactivePersonRepo::person)
+                .all();
+    }
+
+    //same single UPDATE as InMemoryRepo.addMoney
+    public Mono<Integer> addMoney(String id, BigDecimal deposit) {
+        return client.execute("update person set money = money + :deposit, version = version + 1 where name = :id")
+                .bind("deposit", deposit)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    //checks version like Hibernate does for @Version, returns the person with the incremented one
+    public Mono<Person> update(Person person) {
+        return client.execute("update person set surname = :surname, money = :money, version = version + 1"
+                + " where name = :id and version = :version")
+                .bind("surname", person.getSurname())
+                .bind("money", person.getMoney())
+                .bind("id", person.getName())
+                .bind("version", person.getVersion())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updated -> updated == 0
+                        ? Mono.error(new ObjectOptimisticLockingFailureException(Person.class, person.getName()))
+                        : Mono.just(person.toBuilder().version(person.getVersion() + 1).build()));
+    }
+
+    private static Person person(Row row) {
+        return Person.builder()
+                .name(row.get("name", String.class))
+                .surname(row.get("surname", String.class))
+                .money(row.get("money", BigDecimal.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.maciej.springtransactions.retry;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Data
+public class Backoff {
+
+    private int maxAttempts = 10;
+    private Duration initialDelay = Duration.ofMillis(5);
+    private Duration maxDelay = Duration.ofMillis(200);
+    private double multiplier = 2;
+
+    //"full jitter" - random delay between 0 and exponentially growing cap, so retrying threads spread out
+    public long delayMillis(int attempt) {
+        final double exponential = initialDelay.toMillis() * Math.pow(multiplier, attempt - 1);
+        final long cap = (long) Math.min(exponential, maxDelay.toMillis());
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+}
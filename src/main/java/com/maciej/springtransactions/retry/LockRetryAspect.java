@@ -0,0 +1,71 @@
+package com.maciej.springtransactions.retry;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//ordered before transaction advisor (lowest precedence), so every attempt begins and ends its own transaction
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LockRetryAspect {
+
+    private final RetryExecutor retryExecutor;
+
+    public LockRetryAspect(@Qualifier("lockBackoff") Backoff backoff, RetryBudget lockRetryBudget, MeterRegistry registry) {
+        this.retryExecutor = new RetryExecutor(backoff, PessimisticLockingFailureException.class::isInstance, lockRetryBudget);
+        final RetryStats stats = retryExecutor.getStats();
+        FunctionCounter.builder("transaction.lock.retries", stats, RetryStats::getRetries)
+                .description("Transactions repeated after lock acquisition failure or deadlock")
+                .register(registry);
+        FunctionCounter.builder("transaction.lock.giveups", stats, RetryStats::getExhausted)
+                .description("Lock failures rethrown after last attempt or because retry budget was empty")
+                .tag("reason", "attempts")
+                .register(registry);
+        FunctionCounter.builder("transaction.lock.giveups", stats, RetryStats::getRejected)
+                .description("Lock failures rethrown after last attempt or because retry budget was empty")
+                .tag("reason", "budget")
+                .register(registry);
+    }
+
+    @Around("@annotation(com.maciej.springtransactions.retry.RetryOnLockFailure) "
+            + "|| @within(com.maciej.springtransactions.retry.RetryOnLockFailure)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        try {
+            return retryExecutor.execute(() -> {
+                try {
+                    return joinPoint.proceed();
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new CheckedException(ex);
+                }
+            });
+        } catch (CheckedException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public RetryStats getStats() {
+        return retryExecutor.getStats();
+    }
+
+    //lets checked exceptions of the method pass through Supplier untouched
+    private static class CheckedException extends RuntimeException {
+
+        private CheckedException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
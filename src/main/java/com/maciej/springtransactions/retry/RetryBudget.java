@@ -0,0 +1,41 @@
+package com.maciej.springtransactions.retry;
+
+import lombok.Getter;
+import lombok.Setter;
+
+//token bucket shared by all callers of one RetryExecutor: every retry takes a token, tokens come back at refillPerSecond,
+// so when everything conflicts at once callers give up instead of multiplying the load
+public class RetryBudget {
+
+    @Getter
+    @Setter
+    private int capacity = 100;
+    @Getter
+    @Setter
+    private double refillPerSecond = 10;
+
+    private double tokens = -1;
+    private long refilledAt;
+
+    public static RetryBudget unlimited() {
+        final RetryBudget budget = new RetryBudget();
+        budget.setCapacity(Integer.MAX_VALUE);
+        budget.setRefillPerSecond(Integer.MAX_VALUE);
+        return budget;
+    }
+
+    public synchronized boolean tryAcquire() {
+        final long now = System.nanoTime();
+        if (tokens < 0) {
+            tokens = capacity;
+        } else {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) / 1e9 * refillPerSecond);
+        }
+        refilledAt = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.maciej.springtransactions.retry;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public class RetryExecutor {
+
+    private final Backoff backoff;
+    private final Predicate<Throwable> retryOn;
+    private final RetryBudget budget;
+    private final RetryStats stats = new RetryStats();
+
+    public RetryExecutor(Backoff backoff, Predicate<Throwable> retryOn) {
+        this(backoff, retryOn, RetryBudget.unlimited());
+    }
+
+    public RetryExecutor(Backoff backoff, Predicate<Throwable> retryOn, RetryBudget budget) {
+        this.backoff = backoff;
+        this.retryOn = retryOn;
+        this.budget = budget;
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        stats.call();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (RuntimeException ex) {
+                if (!retryOn.test(ex)) {
+                    throw ex;
+                }
+                stats.conflict();
+                if (attempt >= backoff.getMaxAttempts()) {
+                    stats.exhausted();
+                    throw ex;
+                }
+                if (!budget.tryAcquire()) {
+                    stats.rejected();
+                    throw ex;
+                }
+                stats.retry();
+                pause(backoff.delayMillis(attempt), ex);
+            }
+        }
+    }
+
+    public void execute(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public RetryStats getStats() {
+        return stats;
+    }
+
+    private void pause(long ms, RuntimeException cause) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.maciej.springtransactions.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Repeats the whole method, including its own @Transactional, when it fails to get a lock or loses a deadlock
+ * (any PessimisticLockingFailureException). Backoff is configured under retry.lock, shared retry budget under
+ * retry.lock.budget. Calls made inside an already running transaction are not retried - its locks are still held
+ * and it is rollback-only anyway, so only the outermost transaction can be repeated.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnLockFailure {
+}
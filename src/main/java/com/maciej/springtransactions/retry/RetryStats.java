@@ -0,0 +1,59 @@
+package com.maciej.springtransactions.retry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class RetryStats {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    void call() {
+        calls.increment();
+    }
+
+    void conflict() {
+        conflicts.increment();
+    }
+
+    void retry() {
+        retries.increment();
+    }
+
+    void exhausted() {
+        exhausted.increment();
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    //gave up because retry budget was empty
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryStats(calls=" + getCalls() + ", conflicts=" + getConflicts() + ", retries=" + getRetries()
+                + ", exhausted=" + getExhausted() + ", rejected=" + getRejected() + ")";
+    }
+}
@@ -0,0 +1,20 @@
+package com.maciej.springtransactions.service.bulk;
+
+import com.maciej.springtransactions.model.Person;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class BulkImportResult {
+
+    long imported;
+    List<Rejected> rejected;
+
+    @Value
+    public static class Rejected {
+
+        Person person;
+        String reason;
+    }
+}
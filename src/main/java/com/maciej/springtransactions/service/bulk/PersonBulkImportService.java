@@ -0,0 +1,98 @@
+package com.maciej.springtransactions.service.bulk;
+
+import com.maciej.springtransactions.model.Person;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+//PersonBulkIngestService is all-or-nothing: one bad row rolls back the whole ingest. Here every chunk is one JDBC batch
+// under its own savepoint (Propagation.NESTED). A failing chunk is rolled back to its savepoint and bisected until
+// the bad rows are found alone, those are rejected and everything else commits in the one outer transaction.
+//Rows are inserted by JdbcTemplate on the transaction's connection, not by the EntityManager: a failed flush would
+// mark the JPA transaction rollback-only and savepoints couldn't save it. Hibernate doesn't see these inserts, so
+// cached query results are evicted after commit
+@Service
+@Profile("!mvcc")
+public class PersonBulkImportService {
+
+    private static final String INSERT = "insert into person (name, surname, money, version) values (?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate savepoint;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int chunkSize;
+
+    public PersonBulkImportService(DataSource dataSource,
+                                   PlatformTransactionManager transactionManager,
+                                   EntityManagerFactory entityManagerFactory,
+                                   @Value("${bulk.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.savepoint = new TransactionTemplate(transactionManager);
+        this.savepoint.setName(PersonBulkImportService.class.getName() + ".insert");
+        this.savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.entityManagerFactory = entityManagerFactory;
+        this.chunkSize = chunkSize;
+    }
+
+    @Transactional
+    public BulkImportResult importAll(List<Person> persons) {
+        return importAll(persons.stream());
+    }
+
+    @Transactional
+    public BulkImportResult importAll(Stream<Person> persons) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegions();
+            }
+        });
+        final List<BulkImportResult.Rejected> rejected = new ArrayList<>();
+        long imported = 0;
+        final List<Person> chunk = new ArrayList<>(chunkSize);
+        final Iterator<Person> iterator = persons.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                imported += insert(chunk, rejected);
+                chunk.clear();
+            }
+        }
+        return new BulkImportResult(imported, rejected);
+    }
+
+    //returns number of inserted rows, the rest is added to rejected
+    private int insert(List<Person> rows, List<BulkImportResult.Rejected> rejected) {
+        try {
+            savepoint.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (statement, person) -> {
+                statement.setString(1, person.getName());
+                statement.setString(2, person.getSurname());
+                statement.setBigDecimal(3, person.getMoney());
+            }));
+            return rows.size();
+        } catch (DataAccessException ex) {
+            if (rows.size() == 1) {
+                rejected.add(new BulkImportResult.Rejected(rows.get(0), ex.getMostSpecificCause().getMessage()));
+                return 0;
+            }
+            final int half = rows.size() / 2;
+            return insert(rows.subList(0, half), rejected) + insert(rows.subList(half, rows.size()), rejected);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.maciej.springtransactions.service.bulk;
+
+import com.maciej.springtransactions.model.Person;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+//ServiceA/ServiceB.add go through repo.save which merges, so every row costs SELECT + INSERT + flush.
+//Here persons are known to be new: persist skips the SELECT, inserts are sent in JDBC batches of chunkSize and
+//persistence context is cleared after each chunk so memory doesn't grow with the input.
+@Service
+@Profile("!mvcc")
+public class PersonBulkIngestService {
+
+    private final EntityManager entityManager;
+    private final int chunkSize;
+
+    public PersonBulkIngestService(EntityManager entityManager, @Value("${bulk.chunk-size:1000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.chunkSize = chunkSize;
+    }
+
+    @Transactional
+    public long ingest(Collection<Person> persons) {
+        return ingest(persons.stream());
+    }
+
+    @Transactional
+    public long ingest(Stream<Person> persons) {
+        final Session session = entityManager.unwrap(Session.class);
+        final Integer previousBatchSize = session.getJdbcBatchSize();
+        final CacheMode previousCacheMode = session.getCacheMode();
+        session.setJdbcBatchSize(chunkSize);
+        //ingested rows would only push read entries out of the second-level cache
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            long count = 0;
+            final Iterator<Person> iterator = persons.iterator();
+            while (iterator.hasNext()) {
+                entityManager.persist(iterator.next());
+                if (++count % chunkSize == 0) {
+                    flushAndClear();
+                }
+            }
+            flushAndClear();
+            return count;
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+            session.setCacheMode(previousCacheMode);
+        }
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
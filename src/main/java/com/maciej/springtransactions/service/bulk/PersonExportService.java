@@ -0,0 +1,145 @@
+package com.maciej.springtransactions.service.bulk;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+//dumps the whole person table without findAll: rows come through a cursor (fetchSize per round trip, server-side
+// on MySQL with useCursorFetch=true) and columns are written straight from the ResultSet, no entity is created and
+// nothing enters a persistence context. Output goes through one fixed char buffer of bufferSize, so memory doesn't
+// depend on number of rows. Runs in a read-only transaction, which also sets the JDBC connection read-only
+@Service
+@Profile("!mvcc")
+public class PersonExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final String QUERY = "select name, surname, money, version from person";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int bufferSize;
+
+    public PersonExportService(DataSource dataSource,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${streaming.fetch-size:500}") int fetchSize,
+                               @Value("${export.buffer-size:65536}") int bufferSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setName(PersonExportService.class.getName() + ".export");
+        this.readOnlyTransaction.setReadOnly(true);
+        this.bufferSize = bufferSize;
+    }
+
+    //out is flushed, not closed
+    public long export(Format format, OutputStream out) {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+        final long[] count = {0};
+        try {
+            if (format == Format.CSV) {
+                writer.write("name,surname,money,version\n");
+            }
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(QUERY, (ResultSet row) -> {
+                try {
+                    if (format == Format.CSV) {
+                        writeCsv(row, writer);
+                    } else {
+                        writeJson(row, writer);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }));
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count[0];
+    }
+
+    private static void writeJson(ResultSet row, Writer writer) throws SQLException, IOException {
+        writer.write("{\"name\":");
+        writeJsonString(row.getString(1), writer);
+        writer.write(",\"surname\":");
+        writeJsonString(row.getString(2), writer);
+        writer.write(",\"money\":");
+        final BigDecimal money = row.getBigDecimal(3);
+        writer.write(money == null ? "null" : money.toPlainString());
+        writer.write(",\"version\":");
+        writer.write(Long.toString(row.getLong(4)));
+        writer.write("}\n");
+    }
+
+    private static void writeCsv(ResultSet row, Writer writer) throws SQLException, IOException {
+        writeCsvField(row.getString(1), writer);
+        writer.write(',');
+        writeCsvField(row.getString(2), writer);
+        writer.write(',');
+        final BigDecimal money = row.getBigDecimal(3);
+        if (money != null) {
+            writer.write(money.toPlainString());
+        }
+        writer.write(',');
+        writer.write(Long.toString(row.getLong(4)));
+        writer.write('\n');
+    }
+
+    private static void writeJsonString(String value, Writer writer) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    //RFC 4180: quoted only when needed, quotes doubled
+    private static void writeCsvField(String value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,223 @@
+package com.maciej.springtransactions.service.isolation;
+
+import com.maciej.springtransactions.cache.PersonChangedEvent;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group commit of deposits: concurrent requests are queued and a single drainer applies them in batches -
+ * everything that arrived within window (at most maxBatch requests) goes into one transaction, with one atomic
+ * UPDATE per account adding the sum of its deposits. Every account is updated under its own savepoint (NESTED),
+ * so an account that fails only fails its own requests. When the summed update of several deposits fails, they are
+ * repeated one per savepoint in the next transaction and only the bad ones fail.
+ * Futures complete after the transaction that applied them commits.
+ */
+@Slf4j
+@Service
+public class GroupCommitDepositService {
+
+    private final InMemoryRepo repo;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate batchTransaction;
+    private final TransactionTemplate accountSavepoint;
+    private final BlockingQueue<DepositRequest> queue;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder deposits = new LongAdder();
+    private volatile boolean running = true;
+    private Thread drainer;
+
+    public GroupCommitDepositService(InMemoryRepo repo, ApplicationEventPublisher publisher,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${deposit.group-commit.window:2ms}") Duration window,
+                                     @Value("${deposit.group-commit.max-batch:500}") int maxBatch,
+                                     @Value("${deposit.group-commit.queue-capacity:10000}") int queueCapacity) {
+        this.repo = repo;
+        this.publisher = publisher;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setName(GroupCommitDepositService.class.getName() + ".apply");
+        this.accountSavepoint = new TransactionTemplate(transactionManager);
+        this.accountSavepoint.setName(GroupCommitDepositService.class.getName() + ".addToAccount");
+        this.accountSavepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+    }
+
+    @PostConstruct
+    public void start() {
+        drainer = new Thread(this::drain, "group-commit-deposits");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        drainer.interrupt();
+        drainer.join(TimeUnit.SECONDS.toMillis(10));
+        final List<DepositRequest> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(request -> request.result.completeExceptionally(new TaskRejectedException("Deposit service stopped")));
+    }
+
+    public CompletableFuture<Void> depositMoney(String id, BigDecimal deposit) {
+        final DepositRequest request = new DepositRequest(id, deposit);
+        if (!running || !queue.offer(request)) {
+            //full queue means the database can't keep up, callers should slow down rather than wait forever
+            return CompletableFuture.failedFuture(new TaskRejectedException("Deposit queue is full"));
+        }
+        return request.result;
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getDeposits() {
+        return deposits.sum();
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                final List<DepositRequest> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    apply(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Unexpected failure of deposit drainer", ex);
+            }
+        }
+    }
+
+    private List<DepositRequest> nextBatch() throws InterruptedException {
+        final List<DepositRequest> batch = new ArrayList<>();
+        final DepositRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        final long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatch) {
+            //whatever is already queued doesn't need to wait
+            if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                continue;
+            }
+            final long remaining = deadline - System.nanoTime();
+            final DepositRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void apply(List<DepositRequest> batch) {
+        final Map<String, List<DepositRequest>> byAccount = new LinkedHashMap<>();
+        batch.forEach(request -> byAccount.computeIfAbsent(request.id, id -> new ArrayList<>()).add(request));
+        List<List<DepositRequest>> pending = new ArrayList<>(byAccount.values());
+        while (!pending.isEmpty()) {
+            final List<List<DepositRequest>> groups = pending;
+            final Map<List<DepositRequest>, RuntimeException> failed = new IdentityHashMap<>();
+            boolean committed = true;
+            try {
+                batchTransaction.executeWithoutResult(status -> groups.forEach(requests -> {
+                    if (status.isRollbackOnly()) {
+                        //any further savepoint would fail with UnexpectedRollbackException, the rest waits for the repeat
+                        return;
+                    }
+                    try {
+                        accountSavepoint.executeWithoutResult(savepoint -> addToAccount(requests));
+                    } catch (RuntimeException ex) {
+                        failed.put(requests, ex);
+                    }
+                }));
+            } catch (RuntimeException ex) {
+                if (failed.isEmpty()) {
+                    groups.forEach(requests -> fail(requests, ex));
+                    return;
+                }
+                //Hibernate marks the whole transaction rollback-only on a database error even when it was rolled back
+                // to a savepoint, nothing was applied so the batch is repeated without the failed groups
+                committed = false;
+            }
+            final List<List<DepositRequest>> next = new ArrayList<>();
+            for (List<DepositRequest> requests : groups) {
+                final RuntimeException cause = failed.get(requests);
+                if (cause == null) {
+                    if (committed) {
+                        deposits.add(requests.size());
+                        requests.forEach(request -> request.result.complete(null));
+                    } else {
+                        next.add(requests);
+                    }
+                } else if (requests.size() == 1) {
+                    fail(requests, cause);
+                } else {
+                    //one bad deposit fails the summed update, every deposit of the account is repeated on its own
+                    requests.forEach(request -> next.add(List.of(request)));
+                }
+            }
+            if (committed) {
+                batches.increment();
+            }
+            pending = next;
+        }
+    }
+
+    private static void fail(List<DepositRequest> requests, Throwable cause) {
+        requests.forEach(request -> request.result.completeExceptionally(cause));
+    }
+
+    //requests of one account
+    private void addToAccount(List<DepositRequest> requests) {
+        final String id = requests.get(0).id;
+        final BigDecimal sum = requests.stream().map(request -> request.deposit).reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (repo.addMoney(id, sum) == 0) {
+            throw new NoSuchElementException("No person with id " + id);
+        }
+        //bulk update bypasses entity listeners
+        publisher.publishEvent(new PersonChangedEvent(id));
+    }
+
+    private static class DepositRequest {
+
+        private final String id;
+        private final BigDecimal deposit;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private DepositRequest(String id, BigDecimal deposit) {
+            this.id = id;
+            this.deposit = deposit;
+        }
+    }
+}
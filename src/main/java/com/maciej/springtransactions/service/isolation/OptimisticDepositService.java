@@ -0,0 +1,31 @@
+package com.maciej.springtransactions.service.isolation;
+
+import com.maciej.springtransactions.retry.Backoff;
+import com.maciej.springtransactions.retry.RetryExecutor;
+import com.maciej.springtransactions.retry.RetryStats;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+@Service
+public class OptimisticDepositService {
+
+    private final QuickService quickService;
+    private final RetryExecutor retryExecutor;
+
+    public OptimisticDepositService(QuickService quickService, @Qualifier("optimisticBackoff") Backoff backoff) {
+        this.quickService = quickService;
+        this.retryExecutor = new RetryExecutor(backoff, OptimisticLockingFailureException.class::isInstance);
+    }
+
+    //stale @Version makes the write (or the commit, with deferred flush) fail instead of silently overwriting, so whole read-modify-write is repeated
+    public void depositMoney(String id, BigDecimal deposit) {
+        retryExecutor.execute(() -> quickService.depositMoney(id, deposit));
+    }
+
+    public RetryStats getStats() {
+        return retryExecutor.getStats();
+    }
+}
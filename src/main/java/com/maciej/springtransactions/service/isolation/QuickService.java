@@ -1,27 +1,51 @@
 package com.maciej.springtransactions.service.isolation;
 
+import com.maciej.springtransactions.cache.PersonCache;
+import com.maciej.springtransactions.cache.PersonChangedEvent;
 import com.maciej.springtransactions.model.Person;
 import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.repository.LockWait;
+import com.maciej.springtransactions.repository.PersonWriter;
+import com.maciej.springtransactions.retry.RetryOnLockFailure;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 
 @Service
 public class QuickService {
 
     private final InMemoryRepo repo;
+    private final PersonWriter personWriter;
+    private final PersonCache personCache;
+    private final ApplicationEventPublisher publisher;
+    private final LockWait lockWait;
 
-    public QuickService(InMemoryRepo repo) {
+    public QuickService(InMemoryRepo repo, PersonWriter personWriter, PersonCache personCache,
+                        ApplicationEventPublisher publisher,
+                        @Value("${deposit.lock-timeout:2s}") Duration lockTimeout) {
         this.repo = repo;
+        this.personWriter = personWriter;
+        this.personCache = personCache;
+        this.publisher = publisher;
+        this.lockWait = LockWait.timeout(lockTimeout);
+    }
+
+    public Optional<Person> getById_cached(String id) {
+        return personCache.findById(id);
     }
 
     public void depositMoney(String id, BigDecimal deposit) {
         final Person person = repo.findById(id).orElseThrow();
         final BigDecimal current = person.getMoney();
         person.setMoney(current.add(deposit));
-        repo.saveAndFlush(person);
+        personWriter.save(person);
     }
 
     @Transactional
@@ -29,18 +53,46 @@ public class QuickService {
         final Person person = repo.findById(id).orElseThrow();
         final BigDecimal current = person.getMoney();
         person.setMoney(current.add(deposit));
-        repo.saveAndFlush(person);
+        personWriter.save(person);
+    }
+
+    //lock failure rolls back and repeats the whole read-modify-write
+    @RetryOnLockFailure
+    @Transactional
+    public void depositMoney_transactionalWithRetry(String id, BigDecimal deposit) {
+        final Person person = repo.findById(id).orElseThrow();
+        final BigDecimal current = person.getMoney();
+        person.setMoney(current.add(deposit));
+        personWriter.save(person);
+    }
+
+    //row lock instead of SERIALIZABLE: concurrent deposits to this person wait for each other (up to
+    // deposit.lock-timeout, 0 is NOWAIT), other rows and the rest of the table stay free
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public void depositMoney_locking(String id, BigDecimal deposit) {
+        final Person person = repo.findByIdForUpdate(id, lockWait).orElseThrow();
+        final BigDecimal current = person.getMoney();
+        person.setMoney(current.add(deposit));
+        personWriter.save(person);
+    }
+
+    public void depositMoney_atomic(String id, BigDecimal deposit) {
+        if (repo.addMoney(id, deposit) == 0) {
+            throw new NoSuchElementException("No person with id " + id);
+        }
+        //bulk update bypasses entity listeners
+        publisher.publishEvent(new PersonChangedEvent(id));
     }
 
     public void updateSurname(String id, String surname) {
         final Person person = repo.findById(id).orElseThrow();
         person.setSurname(surname);
-        repo.saveAndFlush(person);
+        personWriter.save(person);
     }
 
     public void addNewPerson(String name, String surname) {
         final Person newPerson = Person.builder().name(name).surname(surname).build();
-        repo.saveAndFlush(newPerson);
+        personWriter.save(newPerson);
     }
 
 }
@@ -0,0 +1,78 @@
+package com.maciej.springtransactions.service.isolation;
+
+import com.maciej.springtransactions.cache.PersonChangedEvent;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.ReactivePersonRepo;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.persistence.Cache;
+
+import java.math.BigDecimal;
+import java.util.NoSuchElementException;
+
+//QuickService's deposit and read operations without blocking a thread, no thread is held while waiting for the database.
+//Events are published after the reactive transaction commits (the outermost one, when deposits are composed), there is
+// no thread-bound transaction to listen to, and rolled back deposits publish nothing.
+//Hibernate doesn't see these writes, so the person is also evicted from its second-level cache
+public class ReactiveQuickService {
+
+    private final ReactivePersonRepo repo;
+    private final TransactionalOperator transactions;
+    private final Cache secondLevelCache;
+    private final ApplicationEventPublisher publisher;
+
+    public ReactiveQuickService(ReactivePersonRepo repo, TransactionalOperator transactions, Cache secondLevelCache,
+                                ApplicationEventPublisher publisher) {
+        this.repo = repo;
+        this.transactions = transactions;
+        this.secondLevelCache = secondLevelCache;
+        this.publisher = publisher;
+    }
+
+    public Mono<Person> getById(String id) {
+        return repo.findById(id);
+    }
+
+    public Flux<Person> findBySurname(String surname) {
+        return repo.findBySurname(surname);
+    }
+
+    //read-modify-write in one transaction, stale version fails with ObjectOptimisticLockingFailureException
+    public Mono<Person> depositMoney_transactional(String id, BigDecimal deposit) {
+        return repo.findById(id)
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("No person with id " + id)))
+                .flatMap(person -> repo.update(person.toBuilder().money(person.getMoney().add(deposit)).build()))
+                .flatMap(person -> changedAfterCommit(id).thenReturn(person))
+                .as(transactions::transactional);
+    }
+
+    public Mono<Void> depositMoney_atomic(String id, BigDecimal deposit) {
+        return repo.addMoney(id, deposit)
+                .flatMap(updated -> updated == 0
+                        ? Mono.<Void>error(new NoSuchElementException("No person with id " + id))
+                        : changedAfterCommit(id))
+                .as(transactions::transactional);
+    }
+
+    //registered on the reactive transaction, which may be an outer one this deposit joined
+    private Mono<Void> changedAfterCommit(String id) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(synchronizations -> synchronizations.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return Mono.fromRunnable(() -> changed(id));
+                    }
+                }))
+                .then();
+    }
+
+    private void changed(String id) {
+        secondLevelCache.evict(Person.class, id);
+        publisher.publishEvent(new PersonChangedEvent(id));
+    }
+}
@@ -1,30 +1,65 @@
 package com.maciej.springtransactions.service.isolation;
 
+import com.maciej.springtransactions.cache.PersonChangedEvent;
 import com.maciej.springtransactions.model.Person;
 import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.repository.LockWait;
+import com.maciej.springtransactions.repository.PersonWriter;
+import com.maciej.springtransactions.repository.PersonScanner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.AFTER_READ;
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.BEFORE_COMMIT;
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.BEFORE_FLUSH;
+
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 @Service
 public class SlowService {
 
     private final InMemoryRepo repo;
-
-    public SlowService(InMemoryRepo repo) {
+    private final PersonWriter personWriter;
+    private final PersonScanner personScanner;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionPhaseHooks hooks;
+    private final LockWait lockWait;
+
+    public SlowService(InMemoryRepo repo, PersonWriter personWriter, PersonScanner personScanner,
+                       ApplicationEventPublisher publisher, TransactionPhaseHooks hooks,
+                       @Value("${deposit.lock-timeout:2s}") Duration lockTimeout) {
         this.repo = repo;
+        this.personWriter = personWriter;
+        this.personScanner = personScanner;
+        this.publisher = publisher;
+        this.hooks = hooks;
+        this.lockWait = LockWait.timeout(lockTimeout);
     }
 
     public void depositMoney(String id, BigDecimal deposit) {
         final Person person = repo.findById(id).orElseThrow();
         final BigDecimal current = person.getMoney();
         person.setMoney(current.add(deposit));
-        sleep(1000);
-        repo.saveAndFlush(person);
+        slowdown(AFTER_READ);
+        hooks.reached(BEFORE_FLUSH);
+        personWriter.save(person);
+    }
+
+    //the incremented row stays locked while this waits before commit, a concurrent increment queues behind it
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public void depositMoney_atomic(String id, BigDecimal deposit) {
+        if (repo.addMoney(id, deposit) == 0) {
+            throw new NoSuchElementException("No person with id " + id);
+        }
+        publisher.publishEvent(new PersonChangedEvent(id));
+        slowdown(BEFORE_COMMIT);
     }
 
     @Transactional
@@ -32,17 +67,19 @@ public class SlowService {
         final Person person = repo.findById(id).orElseThrow();
         final BigDecimal current = person.getMoney();
         person.setMoney(current.add(deposit));
+        hooks.reached(AFTER_READ);
+        //always flushed, the uncommitted change has to be in the database while this waits
         repo.saveAndFlush(person);
-        sleep(1000);
+        slowdown(BEFORE_COMMIT);
         throw new RuntimeException();
     }
 
-    @Transactional(isolation = Isolation.READ_UNCOMMITTED)
+    @Transactional(isolation = Isolation.READ_UNCOMMITTED, readOnly = true)
     public Optional<Person> getById_readUncommitted(String id) {
         return repo.findById(id);
     }
 
-    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Transactional(isolation = Isolation.READ_COMMITTED, readOnly = true)
     public Optional<Person> getById_readCommitted(String id) {
         return repo.findById(id);
     }
@@ -52,15 +89,33 @@ public class SlowService {
         final Person person = repo.findById(id).orElseThrow();
         final BigDecimal current = person.getMoney();
         person.setMoney(current.add(deposit));
-        sleep(1000);
-        repo.saveAndFlush(person);
+        slowdown(AFTER_READ);
+        hooks.reached(BEFORE_FLUSH);
+        personWriter.save(person);
+        //with deferred flush the update would reach the database only at commit, after the gate
+        repo.flush();
+        hooks.reached(BEFORE_COMMIT);
+    }
+
+    //the row stays locked while this sleeps, see QuickService.depositMoney_locking
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public void depositMoney_locking(String id, BigDecimal deposit) {
+        final Person person = repo.findByIdForUpdate(id, lockWait).orElseThrow();
+        final BigDecimal current = person.getMoney();
+        person.setMoney(current.add(deposit));
+        slowdown(AFTER_READ);
+        hooks.reached(BEFORE_FLUSH);
+        personWriter.save(person);
+        //with deferred flush the update would reach the database only at commit, after the gate
+        repo.flush();
+        hooks.reached(BEFORE_COMMIT);
     }
 
     public List<Person> getPersonByIdTwoTimes(String id) {
         System.out.println("slow");
         final Person firstRetrieval = repo.findById(id).orElseThrow();
 
-        sleep(1000);
+        slowdown(AFTER_READ);
         System.out.println("slow");
 
         final Person secondRetrieval = repo.findById(id).orElseThrow();
@@ -68,11 +123,11 @@ public class SlowService {
         return List.of(firstRetrieval, secondRetrieval);
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    @Transactional(isolation = Isolation.REPEATABLE_READ, readOnly = true)
     public List<Person> getPersonByIdTwoTimes_transactional(String id) {
         final Person firstRetrieval = repo.findById(id).orElseThrow();
 
-        sleep(1000);
+        slowdown(AFTER_READ);
 
         final Person secondRetrieval = repo.findById(id).orElseThrow();
 
@@ -82,8 +137,8 @@ public class SlowService {
     @Transactional(isolation = Isolation.READ_COMMITTED)
     public List<List<Person>> getAllWithSurname(String surname) {
         final List<Person> bySurname = repo.findBySurname(surname);
-        System.out.println(repo.findAll());
-        sleep(1000);
+        personScanner.forEach(System.out::println);
+        slowdown(AFTER_READ);
 
         final List<Person> bySurname2 = repo.findBySurname(surname);
 
@@ -93,14 +148,21 @@ public class SlowService {
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public List<List<Person>> getAllWithSurname_transactional(String surname) {
         final List<Person> bySurname = repo.findBySurname(surname);
-        System.out.println(repo.findAll());
-        sleep(1000);
+        personScanner.forEach(System.out::println);
+        slowdown(AFTER_READ);
 
         final List<Person> bySurname2 = repo.findBySurname(surname);
 
         return List.of(bySurname, bySurname2);
     }
 
+    //waits at the gate armed for the phase, without one sleeps a second like a slow client would
+    private void slowdown(TransactionPhaseHooks.Phase phase) {
+        if (!hooks.reached(phase)) {
+            sleep(1000);
+        }
+    }
+
     private void sleep(int ms) {
         try {
             Thread.sleep(ms);
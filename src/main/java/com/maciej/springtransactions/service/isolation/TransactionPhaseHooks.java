@@ -0,0 +1,105 @@
+package com.maciej.springtransactions.service.isolation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Points inside SlowService operations where another thread can take over: a gate armed for a phase stops the next
+ * operation reaching it until the gate is released, so transactions interleave in a chosen order instead of by timing.
+ * Gates are one-shot. Without a gate SlowService keeps sleeping where it always did.
+ */
+@Component
+public class TransactionPhaseHooks {
+
+    public enum Phase {
+        //after the first read of the operation
+        AFTER_READ,
+        //before the change is handed to the repository
+        BEFORE_FLUSH,
+        //after the writes reached the database, before the transaction ends
+        BEFORE_COMMIT
+    }
+
+    private final Map<Phase, Gate> gates = new ConcurrentHashMap<>();
+    private final Queue<Gate> armed = new ConcurrentLinkedQueue<>();
+    private final Duration timeout;
+
+    public TransactionPhaseHooks(@Value("${transaction.phase-hooks.timeout:10s}") Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public Gate arm(Phase phase) {
+        final Gate gate = new Gate(phase, timeout);
+        if (gates.putIfAbsent(phase, gate) != null) {
+            throw new IllegalStateException("Gate at " + phase + " is already armed");
+        }
+        armed.add(gate);
+        return gate;
+    }
+
+    //releases every gate armed so far, also those an operation is waiting at
+    public void disarmAll() {
+        gates.clear();
+        Gate gate;
+        while ((gate = armed.poll()) != null) {
+            gate.release();
+        }
+    }
+
+    //true when a gate was armed: the caller waited there until it was released
+    public boolean reached(Phase phase) {
+        final Gate gate = gates.remove(phase);
+        if (gate == null) {
+            return false;
+        }
+        gate.pass();
+        return true;
+    }
+
+    public static final class Gate {
+
+        private final Phase phase;
+        private final Duration timeout;
+        private final CountDownLatch arrived = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private Gate(Phase phase, Duration timeout) {
+            this.phase = phase;
+            this.timeout = timeout;
+        }
+
+        //blocks until an operation stands at the gate
+        public void awaitArrival() {
+            await(arrived, "No operation reached " + phase);
+        }
+
+        public void release() {
+            released.countDown();
+        }
+
+        private void pass() {
+            arrived.countDown();
+            await(released, "Gate at " + phase + " wasn't released");
+        }
+
+        //bounded, a test that fails before releasing doesn't leave a transaction hanging
+        private void await(CountDownLatch latch, String timeoutMessage) {
+            try {
+                if (!latch.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException(timeoutMessage + " within " + timeout);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -82,6 +82,22 @@ public class MyAnnotatedService_Propagation {
         }
     }
 
+    @Transactional
+    public void transactionalMethodWithNestedSucceedingTransactionalMethodWhichHasPropagationNested() {
+        Person personA = Person.builder()
+                .name("A").build();
+        Person personB = Person.builder()
+                .name("B").build();
+
+        serviceA.add(personA);
+        serviceB.add(personB);
+
+        try {
+            nestedAnnotatedService.transactionalSucceedingMethod_andPropagationNested();
+        } catch (RuntimeException ignored) {
+        }
+    }
+
     @Transactional
     public void failingTransactionalMethodWithNestedSucceedingTransactionalMethodWhichHasPropagationNested() {
         Person personA = Person.builder()
@@ -56,4 +56,12 @@ public class MyNestedAnnotatedService {
         serviceA.add(personA);
     }
 
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void transactionalMethodWhenOneFails_andPropagationRequiredNew() {
+        Person personA = Person.builder()
+                .name("NA").build();
+        serviceA.add(personA);
+        serviceB.failWithRuntime();
+    }
+
 }
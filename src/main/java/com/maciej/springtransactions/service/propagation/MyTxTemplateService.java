@@ -10,11 +10,14 @@ public class MyTxTemplateService {
     private final ServiceA serviceA;
     private final ServiceB serviceB;
     private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate failingTransactionTemplate;
 
+    //copies of the shared template, named like @Transactional methods so transaction.duration tells them apart
     public MyTxTemplateService(ServiceA serviceA, ServiceB serviceB, TransactionTemplate transactionTemplate) {
         this.serviceA = serviceA;
         this.serviceB = serviceB;
-        this.transactionTemplate = transactionTemplate;
+        this.transactionTemplate = named(transactionTemplate, "methodWithTransactionTemplate");
+        this.failingTransactionTemplate = named(transactionTemplate, "methodWithTxTemplateWhereOneServiceFailsWithRuntime");
     }
 
     public void methodWithTransactionTemplate() {
@@ -34,7 +37,7 @@ public class MyTxTemplateService {
 
     public void methodWithTxTemplateWhereOneServiceFailsWithRuntime() {
 
-        transactionTemplate.executeWithoutResult(transactionStatus -> {
+        failingTransactionTemplate.executeWithoutResult(transactionStatus -> {
             Person personA = Person.builder()
                     .name("A").build();
             Person personB = Person.builder()
@@ -45,4 +48,9 @@ public class MyTxTemplateService {
         });
     }
 
+    private static TransactionTemplate named(TransactionTemplate template, String method) {
+        final TransactionTemplate named = new TransactionTemplate(template.getTransactionManager(), template);
+        named.setName(MyTxTemplateService.class.getName() + "." + method);
+        return named;
+    }
 }
@@ -0,0 +1,103 @@
+package com.maciej.springtransactions.web;
+
+import com.maciej.springtransactions.async.AsyncTransactionalExecutor;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+//handlers return futures of AsyncTransactionalExecutor, the request thread goes back to the container
+// while the transaction runs. InFlightLimiter in front of it rejects what the executor couldn't take without waiting.
+@RestController
+@RequestMapping("/accounts")
+public class AccountController {
+
+    static final int MAX_PAGE_SIZE = 100;
+    private static final TransactionDefinition DEPOSIT = named("deposit", new DefaultTransactionDefinition());
+    private static final TransactionDefinition GET_BY_ID = named("getById", readOnly());
+    private static final TransactionDefinition LIST_BY_SURNAME = named("listBySurname", readOnly());
+
+    private final QuickService quickService;
+    private final SlowService slowService;
+    private final InMemoryRepo repo;
+    private final AsyncTransactionalExecutor executor;
+
+    public AccountController(QuickService quickService, SlowService slowService, InMemoryRepo repo,
+                             AsyncTransactionalExecutor executor) {
+        this.quickService = quickService;
+        this.slowService = slowService;
+        this.repo = repo;
+        this.executor = executor;
+    }
+
+    //slow=true goes through SlowService, which holds the updated row a second before commit
+    @PostMapping("/{id}/deposits")
+    public CompletableFuture<Person> deposit(@PathVariable String id, @RequestParam BigDecimal amount,
+                                             @RequestParam(defaultValue = "false") boolean slow) {
+        return executor.submit(DEPOSIT, () -> {
+            if (slow) {
+                slowService.depositMoney_atomic(id, amount);
+            } else {
+                quickService.depositMoney_atomic(id, amount);
+            }
+            return repo.findById(id).orElseThrow();
+        });
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<Person> getById(@PathVariable String id) {
+        return executor.submit(GET_BY_ID, () -> slowService.getById_readCommitted(id)
+                .orElseThrow(() -> new NoSuchElementException("No person with id " + id)));
+    }
+
+    @GetMapping
+    public CompletableFuture<AccountPage> listBySurname(@RequestParam String surname,
+                                                        @RequestParam(defaultValue = "") String after,
+                                                        @RequestParam(defaultValue = "20") int limit) {
+        final int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return executor.submit(LIST_BY_SURNAME, () -> AccountPage.of(
+                repo.findBySurnameAndNameGreaterThanOrderByNameAsc(surname, after, PageRequest.of(0, size)), size));
+    }
+
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<String> notFound(NoSuchElementException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
+    //all executor slots busy (for async.transactions.acquire-timeout when set)
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    private static DefaultTransactionDefinition readOnly() {
+        final DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(true);
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return definition;
+    }
+
+    //transaction.duration is tagged with the name, like @Transactional methods
+    private static TransactionDefinition named(String method, DefaultTransactionDefinition definition) {
+        definition.setName(AccountController.class.getName() + "." + method);
+        return definition;
+    }
+}
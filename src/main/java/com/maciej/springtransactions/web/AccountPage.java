@@ -0,0 +1,18 @@
+package com.maciej.springtransactions.web;
+
+import com.maciej.springtransactions.model.Person;
+import lombok.Value;
+
+import java.util.List;
+
+//next is the name to pass as "after" for the following page, null on the last one
+@Value
+public class AccountPage {
+
+    List<Person> items;
+    String next;
+
+    static AccountPage of(List<Person> items, int limit) {
+        return new AccountPage(items, items.size() < limit ? null : items.get(items.size() - 1).getName());
+    }
+}
@@ -0,0 +1,115 @@
+package com.maciej.springtransactions.async;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "async.transactions.max-concurrency=2")
+class AsyncTransactionalExecutorTest {
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private QuickService quickService;
+
+    @Autowired
+    private AsyncTransactionalExecutor executor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setup() {
+        Person person = Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build();
+        repo.save(person);
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldRunEveryCallInItsOwnTransaction_offCallerThread() {
+        final Thread caller = Thread.currentThread();
+
+        final Boolean inTransaction = executor.submit(() -> Thread.currentThread() != caller
+                && TransactionSynchronizationManager.isActualTransactionActive()).join();
+
+        assertThat(inTransaction).isTrue();
+    }
+
+    @Test
+    void shouldCompleteAllDeposits_whenCallersWaitForSlots() throws InterruptedException {
+        final AsyncTransactionalExecutor waiting =
+                new AsyncTransactionalExecutor(transactionManager, 2, Duration.ofSeconds(5), false);
+        try {
+            final CompletableFuture<?>[] deposits = IntStream.range(0, 10)
+                    .mapToObj(i -> waiting.run(() -> quickService.depositMoney_atomic("John", BigDecimal.ONE)))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(deposits).join();
+        } finally {
+            waiting.shutdown();
+        }
+
+        final Person john = repo.findById("John").orElseThrow();
+
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.TEN);
+        assertThat(waiting.getRunning()).isZero();
+    }
+
+    @Test
+    void shouldRejectCallerAtOnce_whenAllSlotsAreBusy() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Void> first = executor.run(() -> await(release));
+        final CompletableFuture<Void> second = executor.run(() -> await(release));
+
+        assertThatThrownBy(() -> executor.run(() -> {
+        })).isInstanceOf(TaskRejectedException.class);
+
+        release.countDown();
+        CompletableFuture.allOf(first, second).join();
+        assertThat(executor.submit(() -> "free again").join()).isEqualTo("free again");
+    }
+
+    @Test
+    void shouldRollBackAndCompleteExceptionally_whenCallFails() {
+        final CompletableFuture<Void> failing = executor.run(() -> {
+            quickService.depositMoney_atomic("John", BigDecimal.ONE);
+            throw new IllegalStateException("boom");
+        });
+
+        assertThatThrownBy(failing::join).hasCauseInstanceOf(IllegalStateException.class);
+        final Person john = repo.findById("John").orElseThrow();
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ZERO);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.async.AsyncTransactionalExecutor;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//one invocation fires CALLS deposits at once (each its own transaction) and waits for all of them, score is transactions per ms.
+//commonPool is what IsolationTest does with runAsync, platform and virtual go through AsyncTransactionalExecutor
+// (virtual falls back to platform threads below Java 19)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncExecutorBenchmark {
+
+    private static final int CALLS = 200;
+    private static final int ACCOUNTS = 50;
+
+    @Param({"commonPool", "platform", "virtual"})
+    public String executor;
+
+    private ConfigurableApplicationContext context;
+    private InMemoryRepo repo;
+    private TransactionTemplate transactionTemplate;
+    private AsyncTransactionalExecutor asyncExecutor;
+
+    @Setup
+    public void setup() {
+        //CALLS submitted at once, more than there are slots, so callers wait for one
+        context = BenchmarkContexts.start("async.transactions.virtual-threads=" + executor.equals("virtual"),
+                "async.transactions.acquire-timeout=10s");
+        repo = context.getBean(InMemoryRepo.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        asyncExecutor = context.getBean(AsyncTransactionalExecutor.class);
+        IntStream.range(0, ACCOUNTS).forEach(i -> repo.save(
+                Person.builder().name("A" + i).surname("Async").money(BigDecimal.ZERO).build()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void deposits() {
+        final CompletableFuture<?>[] calls = IntStream.range(0, CALLS)
+                .mapToObj(i -> deposit("A" + i % ACCOUNTS))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(calls).join();
+    }
+
+    private CompletableFuture<Void> deposit(String id) {
+        if (executor.equals("commonPool")) {
+            return CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                    status -> repo.addMoney(id, BigDecimal.ONE)));
+        }
+        return asyncExecutor.run(() -> repo.addMoney(id, BigDecimal.ONE));
+    }
+}
@@ -0,0 +1,30 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.SpringTransactionsApplication;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+//every benchmark boots the real application against in-memory H2 (or another profile), extra properties override application.yaml
+final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return startWithProfile("h2", properties);
+    }
+
+    //profile may list several, comma separated
+    static ConfigurableApplicationContext startWithProfile(String profile, String... properties) {
+        return new SpringApplicationBuilder(SpringTransactionsApplication.class)
+                .profiles(profile.split(","))
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("logging.level.root=warn")
+                .properties(properties)
+                .run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.bulk.PersonBulkImportService;
+import com.maciej.springtransactions.service.bulk.PersonBulkIngestService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//one invocation imports all rows into a table already holding `bad` of them, spread evenly over the input.
+//Chunks under savepoints with bisection vs the usual fallback once a bulk insert fails: transaction per row
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx256m")
+public class BulkImportBenchmark {
+
+    @Param("10000")
+    private int rows;
+
+    @Param({"0", "10"})
+    private int bad;
+
+    @Param("1000")
+    private int chunkSize;
+
+    private ConfigurableApplicationContext context;
+    private InMemoryRepo repo;
+    private PersonBulkIngestService bulkIngestService;
+    private PersonBulkImportService bulkImportService;
+    private List<Person> input;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.start("bulk.chunk-size=" + chunkSize);
+        repo = context.getBean(InMemoryRepo.class);
+        bulkIngestService = context.getBean(PersonBulkIngestService.class);
+        bulkImportService = context.getBean(PersonBulkImportService.class);
+        input = IntStream.range(0, rows)
+                .mapToObj(i -> Person.builder().name("P" + i).surname("Bulk").money(BigDecimal.TEN).build())
+                .collect(Collectors.toList());
+    }
+
+    @Setup(Level.Iteration)
+    public void cleanDb() {
+        repo.deleteAllInBatch();
+        if (bad > 0) {
+            bulkIngestService.ingest(IntStream.range(0, bad)
+                    .mapToObj(i -> input.get(i * (rows / bad)).toBuilder().build()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long savepointChunks() {
+        return bulkImportService.importAll(input).getImported();
+    }
+
+    @Benchmark
+    public long transactionPerRow() {
+        long imported = 0;
+        for (Person person : input) {
+            try {
+                imported += bulkIngestService.ingest(List.of(person.toBuilder().build()));
+            } catch (RuntimeException rejected) {
+                //duplicate, skipped
+            }
+        }
+        return imported;
+    }
+}
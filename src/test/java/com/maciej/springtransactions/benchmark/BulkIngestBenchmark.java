@@ -0,0 +1,79 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.bulk.PersonBulkIngestService;
+import com.maciej.springtransactions.service.propagation.ServiceA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+//one invocation ingests all rows into an empty table, rows/s = rows / score
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx256m")
+public class BulkIngestBenchmark {
+
+    @Param("10000")
+    private int rows;
+
+    @Param("1000")
+    private int chunkSize;
+
+    private ConfigurableApplicationContext context;
+    private InMemoryRepo repo;
+    private ServiceA serviceA;
+    private PersonBulkIngestService bulkIngestService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.start("bulk.chunk-size=" + chunkSize);
+        repo = context.getBean(InMemoryRepo.class);
+        serviceA = context.getBean(ServiceA.class);
+        bulkIngestService = context.getBean(PersonBulkIngestService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void cleanDb() {
+        repo.deleteAllInBatch();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void perEntity() {
+        persons().forEach(serviceA::add);
+    }
+
+    @Benchmark
+    public long bulk() {
+        return bulkIngestService.ingest(persons());
+    }
+
+    private Stream<Person> persons() {
+        return IntStream.range(0, rows)
+                .mapToObj(i -> Person.builder().name("P" + i).surname("Bulk").money(BigDecimal.TEN).build());
+    }
+}
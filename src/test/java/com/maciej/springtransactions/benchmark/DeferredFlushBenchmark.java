@@ -0,0 +1,96 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//one transaction depositing to `updates` persons through QuickService, eager saveAndFlush vs deferred flush.
+//statements and flushes come from Hibernate statistics (a JDBC batch counts as one statement), divide them by
+// transactions - JMH sums these counters over iterations, so ratios can't be reported directly
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeferredFlushBenchmark {
+
+    @Param({"false", "true"})
+    public boolean deferred;
+
+    @Param("20")
+    public int updates;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private QuickService quickService;
+    private Statistics statistics;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.start("persistence.deferred-flush=" + deferred,
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn");
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        quickService = context.getBean(QuickService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        final InMemoryRepo repo = context.getBean(InMemoryRepo.class);
+        IntStream.range(0, updates).forEach(i -> repo.save(
+                Person.builder().name("P" + i).surname("Deferred").money(BigDecimal.ZERO).build()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long statements;
+        public long flushes;
+        public long transactions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            flushes = 0;
+            transactions = 0;
+        }
+    }
+
+    @Benchmark
+    public void multiUpdateTransaction(Counters counters) {
+        final long statementsBefore = statistics.getPrepareStatementCount();
+        final long flushesBefore = statistics.getFlushCount();
+        transactionTemplate.executeWithoutResult(status -> IntStream.range(0, updates)
+                .forEach(i -> quickService.depositMoney_transactional("P" + i, BigDecimal.ONE)));
+        counters.statements += statistics.getPrepareStatementCount() - statementsBefore;
+        counters.flushes += statistics.getFlushCount() - flushesBefore;
+        counters.transactions++;
+    }
+}
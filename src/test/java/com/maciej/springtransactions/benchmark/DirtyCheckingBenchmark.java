@@ -0,0 +1,79 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.hibernate.engine.spi.ManagedEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//one transaction loads `persons` and deposits to `updates` of them, flushing after each deposit like queries in AUTO
+// flush mode do. Without enhancement every flush compares snapshots of all loaded persons, with dirty tracking only
+// the deposited ones are looked at. Compare runs of an enhanced build with one made by
+// mvn clean test-compile -Dhibernate.enhance.dirty-tracking=false -Dhibernate.enhance.lazy-initialization=false
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DirtyCheckingBenchmark {
+
+    @Param({"100", "1000"})
+    public int persons;
+
+    @Param("20")
+    public int updates;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+
+    @Setup
+    public void setup() {
+        System.out.printf("%nPerson is %s%n", ManagedEntity.class.isAssignableFrom(Person.class) ? "enhanced" : "not enhanced");
+        context = BenchmarkContexts.start();
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        entityManager = context.getBean(EntityManager.class);
+        context.getBean(InMemoryRepo.class).saveAll(IntStream.range(0, persons)
+                .mapToObj(i -> Person.builder().name("D" + i).surname("Dirty").money(BigDecimal.ZERO).build())
+                .collect(Collectors.toList()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void depositsWithFlushes() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final List<Person> loaded = entityManager
+                    .createQuery("select p from Person p where p.surname = 'Dirty'", Person.class)
+                    .getResultList();
+            for (int i = 0; i < updates; i++) {
+                final Person person = loaded.get(i * loaded.size() / updates);
+                person.setMoney(person.getMoney().add(BigDecimal.ONE));
+                entityManager.flush();
+            }
+        });
+    }
+}
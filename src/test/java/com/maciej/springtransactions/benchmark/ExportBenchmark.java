@@ -0,0 +1,76 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.bulk.PersonBulkIngestService;
+import com.maciej.springtransactions.service.bulk.PersonExportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//one invocation exports the whole table to a discarding stream. The heap also holds the in-memory database, raise
+// rows until findAll runs out of it (add -prof gc to compare allocation per row)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx128m")
+public class ExportBenchmark {
+
+    @Param("100000")
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private InMemoryRepo repo;
+    private PersonExportService exportService;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.start();
+        repo = context.getBean(InMemoryRepo.class);
+        exportService = context.getBean(PersonExportService.class);
+        context.getBean(PersonBulkIngestService.class).ingest(IntStream.range(0, rows)
+                .mapToObj(i -> Person.builder().name("P" + i).surname("Export").money(BigDecimal.TEN).build()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long findAll() throws IOException {
+        final OutputStream out = OutputStream.nullOutputStream();
+        long count = 0;
+        for (Person person : repo.findAll()) {
+            out.write(mapper.writeValueAsBytes(person));
+            out.write('\n');
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long streaming() {
+        return exportService.export(PersonExportService.Format.NDJSON, OutputStream.nullOutputStream());
+    }
+}
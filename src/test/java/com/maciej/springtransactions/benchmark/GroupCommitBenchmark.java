@@ -0,0 +1,74 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.GroupCommitDepositService;
+import com.maciej.springtransactions.service.isolation.OptimisticDepositService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//deposits from 16 threads to a few accounts: read-modify-write transaction per deposit (retried on version conflict)
+// vs GroupCommitDepositService.
+//In-memory H2 has no fsync, so the gap is much wider against a real database with durable commits
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class GroupCommitBenchmark {
+
+    @Param("8")
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private OptimisticDepositService optimisticDepositService;
+    private GroupCommitDepositService groupCommitDepositService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.start("retry.optimistic.max-attempts=1000");
+        optimisticDepositService = context.getBean(OptimisticDepositService.class);
+        groupCommitDepositService = context.getBean(GroupCommitDepositService.class);
+        final InMemoryRepo repo = context.getBean(InMemoryRepo.class);
+        IntStream.range(0, accounts).forEach(i -> repo.save(
+                Person.builder().name("A" + i).surname("Deposit").money(BigDecimal.ZERO).build()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void transactionPerDeposit() {
+        optimisticDepositService.depositMoney(account(), BigDecimal.ONE);
+    }
+
+    @Benchmark
+    public void groupCommit() {
+        groupCommitDepositService.depositMoney(account(), BigDecimal.ONE).join();
+    }
+
+    private String account() {
+        return "A" + ThreadLocalRandom.current().nextInt(accounts);
+    }
+}
@@ -0,0 +1,122 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.AFTER_READ;
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.BEFORE_COMMIT;
+
+//the lost update scenario of IsolationTest on repeat, every invocation interleaves the same way: SlowService stops at
+// a gate, QuickService deposits to the same person, the gate opens. Read-modify-write with @Version aborts the slow
+// deposit every time, atomic increments keep both
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterleavingBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private SlowService slowService;
+    private QuickService quickService;
+    private TransactionPhaseHooks hooks;
+    private ExecutorService slowThread;
+    private ExecutorService quickThread;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.start();
+        slowService = context.getBean(SlowService.class);
+        quickService = context.getBean(QuickService.class);
+        hooks = context.getBean(TransactionPhaseHooks.class);
+        context.getBean(InMemoryRepo.class).save(Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build());
+        slowThread = Executors.newSingleThreadExecutor();
+        quickThread = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        hooks.disarmAll();
+        slowThread.shutdownNow();
+        quickThread.shutdownNow();
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+
+        public long committed;
+        public long aborted;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            committed = 0;
+            aborted = 0;
+        }
+    }
+
+    @Benchmark
+    public void readModifyWrite(Outcomes outcomes) {
+        interleave(AFTER_READ, () -> slowService.depositMoney("John", BigDecimal.TEN),
+                () -> quickService.depositMoney("John", BigDecimal.ONE), outcomes);
+    }
+
+    @Benchmark
+    public void atomic(Outcomes outcomes) {
+        //SlowService holds its incremented row before commit, the quick increment waits for it on its own thread
+        final TransactionPhaseHooks.Gate gate = hooks.arm(BEFORE_COMMIT);
+        final CompletableFuture<Void> slowDeposit =
+                CompletableFuture.runAsync(() -> slowService.depositMoney_atomic("John", BigDecimal.TEN), slowThread);
+        gate.awaitArrival();
+        final CompletableFuture<Void> quickDeposit =
+                CompletableFuture.runAsync(() -> quickService.depositMoney_atomic("John", BigDecimal.ONE), quickThread);
+        gate.release();
+        count(slowDeposit, outcomes);
+        count(quickDeposit, outcomes);
+    }
+
+    private void interleave(TransactionPhaseHooks.Phase phase, Runnable slow, Runnable quick, Outcomes outcomes) {
+        final TransactionPhaseHooks.Gate gate = hooks.arm(phase);
+        final CompletableFuture<Void> slowDeposit = CompletableFuture.runAsync(slow, slowThread);
+        gate.awaitArrival();
+        quick.run();
+        gate.release();
+        outcomes.committed++;
+        count(slowDeposit, outcomes);
+    }
+
+    private static void count(CompletableFuture<Void> deposit, Outcomes outcomes) {
+        try {
+            deposit.join();
+            outcomes.committed++;
+        } catch (CompletionException e) {
+            outcomes.aborted++;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//read-modify-write deposits from 8 threads to a few accounts, without retries: SERIALIZABLE transaction vs
+// READ_COMMITTED with the row locked by findByIdForUpdate. Every failed deposit counts as aborted
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class PessimisticLockBenchmark {
+
+    @Param({"h2", "mvcc"})
+    public String profile;
+
+    @Param({"1", "8"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private QuickService quickService;
+    private TransactionTemplate serializable;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.startWithProfile(profile);
+        quickService = context.getBean(QuickService.class);
+        serializable = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        serializable.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        final InMemoryRepo repo = context.getBean(InMemoryRepo.class);
+        IntStream.range(0, accounts).forEach(i -> repo.save(
+                Person.builder().name("A" + i).surname("Deposit").money(BigDecimal.ZERO).build()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+
+        public long committed;
+        public long aborted;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            committed = 0;
+            aborted = 0;
+        }
+    }
+
+    @Benchmark
+    public void serializable(Outcomes outcomes) {
+        count(() -> serializable.executeWithoutResult(status ->
+                quickService.depositMoney_transactional(account(), BigDecimal.ONE)), outcomes);
+    }
+
+    @Benchmark
+    public void rowLock(Outcomes outcomes) {
+        count(() -> quickService.depositMoney_locking(account(), BigDecimal.ONE), outcomes);
+    }
+
+    private void count(Runnable deposit, Outcomes outcomes) {
+        try {
+            deposit.run();
+            outcomes.committed++;
+        } catch (DataAccessException | TransactionException e) {
+            outcomes.aborted++;
+        }
+    }
+
+    private String account() {
+        return "A" + ThreadLocalRandom.current().nextInt(accounts);
+    }
+}
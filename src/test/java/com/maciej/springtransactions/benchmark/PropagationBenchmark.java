@@ -0,0 +1,130 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.propagation.MyNestedAnnotatedService;
+import com.maciej.springtransactions.service.propagation.MyTxTemplateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+//every nested call runs inside one outer REQUIRED transaction, so differences come from the propagation mode only:
+// REQUIRED joins it, NESTED sets a savepoint, REQUIRES_NEW suspends it and takes a second connection.
+//the services save fixed ids, the table is emptied before every invocation so success paths insert like rollback ones
+// instead of merging into the row the previous invocation left.
+//SampleTime only: it times each invocation on its own and leaves the per-invocation setup out, Throughput would count
+// the table cleanup in its iteration time.
+//mvcc runs the same services against MvccStore, without JDBC in between
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropagationBenchmark {
+
+    @Param({"h2", "mvcc"})
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate outerTransaction;
+    private MyNestedAnnotatedService nestedAnnotatedService;
+    private MyTxTemplateService txTemplateService;
+    private InMemoryRepo repo;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.startWithProfile(profile);
+        outerTransaction = context.getBean(TransactionTemplate.class);
+        nestedAnnotatedService = context.getBean(MyNestedAnnotatedService.class);
+        txTemplateService = context.getBean(MyTxTemplateService.class);
+        repo = context.getBean(InMemoryRepo.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() {
+        repo.deleteAllInBatch();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void required_success() {
+        outerTransaction.executeWithoutResult(status -> nestedAnnotatedService.transactionalSucceedingMethod());
+    }
+
+    @Benchmark
+    public void required_rollback() {
+        //caught exception still marks the shared transaction as rollback-only, commit turns into rollback
+        try {
+            outerTransaction.executeWithoutResult(status -> {
+                try {
+                    nestedAnnotatedService.transactionalMethodWhenOneFails_andPropagationRequired();
+                } catch (RuntimeException ignored) {
+                }
+            });
+        } catch (UnexpectedRollbackException ignored) {
+        }
+    }
+
+    @Benchmark
+    public void nested_success() {
+        outerTransaction.executeWithoutResult(status -> nestedAnnotatedService.transactionalSucceedingMethod_andPropagationNested());
+    }
+
+    @Benchmark
+    public void nested_rollback() {
+        //only the savepoint is rolled back, outer transaction commits
+        outerTransaction.executeWithoutResult(status -> {
+            try {
+                nestedAnnotatedService.transactionalMethodWhenOneFails_andPropagationNested();
+            } catch (RuntimeException ignored) {
+            }
+        });
+    }
+
+    @Benchmark
+    public void requiresNew_success() {
+        outerTransaction.executeWithoutResult(status -> nestedAnnotatedService.transactionalSucceedingMethod_andPropagationRequiredNew());
+    }
+
+    @Benchmark
+    public void requiresNew_rollback() {
+        outerTransaction.executeWithoutResult(status -> {
+            try {
+                nestedAnnotatedService.transactionalMethodWhenOneFails_andPropagationRequiredNew();
+            } catch (RuntimeException ignored) {
+            }
+        });
+    }
+
+    @Benchmark
+    public void txTemplate_success() {
+        txTemplateService.methodWithTransactionTemplate();
+    }
+
+    @Benchmark
+    public void txTemplate_rollback() {
+        try {
+            txTemplateService.methodWithTxTemplateWhereOneServiceFailsWithRuntime();
+        } catch (RuntimeException ignored) {
+        }
+    }
+}
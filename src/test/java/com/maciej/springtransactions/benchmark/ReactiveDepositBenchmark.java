@@ -0,0 +1,107 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import com.maciej.springtransactions.service.isolation.ReactiveQuickService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//inFlight concurrent deposits, each to its own account: thread per request on the JPA path (like servlet requests)
+// vs one reactive pipeline on R2DBC. Both go through 10 connections.
+//Memory per in-flight request: run with -prof gc, gc.alloc.rate.norm / inFlight is heap allocated per request;
+// the JPA path also keeps inFlight threads with their stacks, reported at the end of each trial
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReactiveDepositBenchmark {
+
+    @Param({"jpa", "r2dbc"})
+    public String path;
+
+    @Param({"100", "1000"})
+    public int inFlight;
+
+    private ConfigurableApplicationContext context;
+    private QuickService quickService;
+    private ReactiveQuickService reactiveQuickService;
+    private ExecutorService requestThreads;
+    //embedded H2 does no I/O, r2dbc-h2 runs it on the subscribing thread (and blocks inside, so Reactor's own
+    // non-blocking schedulers refuse it). Requests of a reactive server arrive on one event loop thread per core
+    private ExecutorService eventLoopThreads;
+    private Scheduler eventLoops;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.start("reactive.pool.max-size=10", "spring.datasource.hikari.maximum-pool-size=10");
+        quickService = context.getBean(QuickService.class);
+        reactiveQuickService = context.getBean(ReactiveQuickService.class);
+        context.getBean(InMemoryRepo.class).saveAll(IntStream.range(0, inFlight)
+                .mapToObj(i -> Person.builder().name("R" + i).surname("Reactive").money(BigDecimal.ZERO).build())
+                .collect(Collectors.toList()));
+        if (path.equals("jpa")) {
+            requestThreads = Executors.newFixedThreadPool(inFlight);
+        } else {
+            eventLoopThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            eventLoops = Schedulers.fromExecutorService(eventLoopThreads);
+        }
+        threads.resetPeakThreadCount();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%s, %d in flight: %d live threads at peak%n", path, inFlight, threads.getPeakThreadCount());
+        if (requestThreads != null) {
+            requestThreads.shutdown();
+        }
+        if (eventLoopThreads != null) {
+            eventLoops.dispose();
+            eventLoopThreads.shutdown();
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public void deposits() {
+        if (path.equals("jpa")) {
+            CompletableFuture.allOf(IntStream.range(0, inFlight)
+                    .mapToObj(i -> CompletableFuture.runAsync(
+                            () -> quickService.depositMoney_atomic("R" + i, BigDecimal.ONE), requestThreads))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+        } else {
+            Flux.range(0, inFlight)
+                    .flatMap(i -> reactiveQuickService.depositMoney_atomic("R" + i, BigDecimal.ONE)
+                            .subscribeOn(eventLoops), inFlight)
+                    .blockLast();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//hit path of the second-level and query cache: every person and surname is read over and over without writes,
+// so with cache=true all reads after warmup are hits. cache=false reads the same rows from H2
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecondLevelCacheBenchmark {
+
+    private static final int PERSONS = 1000;
+    private static final int SURNAMES = 100;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext context;
+    private InMemoryRepo repo;
+    private int next;
+
+    @Setup
+    public void setup() {
+        //builder properties don't override application.yaml, system properties do (every param set runs in its own fork)
+        System.setProperty("spring.jpa.properties.hibernate.cache.use_second_level_cache", String.valueOf(cache));
+        System.setProperty("spring.jpa.properties.hibernate.cache.use_query_cache", String.valueOf(cache));
+        context = BenchmarkContexts.start();
+        repo = context.getBean(InMemoryRepo.class);
+        repo.saveAll(IntStream.range(0, PERSONS)
+                .mapToObj(i -> Person.builder().name("C" + i).surname("S" + i % SURNAMES).money(BigDecimal.TEN).build())
+                .collect(Collectors.toList()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Person> findById() {
+        return repo.findById("C" + next());
+    }
+
+    @Benchmark
+    public List<Person> findBySurname() {
+        return repo.findBySurname("S" + next() % SURNAMES);
+    }
+
+    private int next() {
+        next = (next + 1) % PERSONS;
+        return next;
+    }
+}
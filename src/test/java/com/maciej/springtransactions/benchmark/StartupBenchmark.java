@@ -0,0 +1,76 @@
+package com.maciej.springtransactions.benchmark;
+
+import com.maciej.springtransactions.service.isolation.QuickService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+//cold start: every fork is a fresh JVM measured once. contextReady is SpringApplication.run until the context is
+// refreshed, firstTransaction the first write afterwards - lazy beans move part of startup there
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+    @Param({"h2", "h2,fast-startup"})
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        context = null;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext contextReady() {
+        context = BenchmarkContexts.startWithProfile(profile);
+        return context;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Started {
+
+        private ConfigurableApplicationContext context;
+        private QuickService quickService;
+
+        @Setup(Level.Iteration)
+        public void start(StartupBenchmark benchmark) {
+            context = BenchmarkContexts.startWithProfile(benchmark.profile);
+            quickService = context.getBean(QuickService.class);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public void firstTransaction(Started started) {
+        started.quickService.addNewPerson("First", "Transaction");
+    }
+}
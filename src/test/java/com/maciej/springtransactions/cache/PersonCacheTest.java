@@ -0,0 +1,136 @@
+package com.maciej.springtransactions.cache;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Gate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.BEFORE_COMMIT;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class PersonCacheTest {
+
+    @Autowired
+    private PersonCache personCache;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private SlowService slowService;
+
+    @Autowired
+    private QuickService quickService;
+
+    @Autowired
+    private TransactionPhaseHooks hooks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setup() {
+        Person person = Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build();
+        repo.save(person);
+    }
+
+    @AfterEach
+    void cleanup() {
+        hooks.disarmAll();
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldServeSecondReadFromCache() {
+        final long hitsBefore = personCache.stats().hitCount();
+
+        personCache.findById("John");
+        final Person john = personCache.findById("John").orElseThrow();
+
+        assertThat(john.getSurname()).isEqualTo("Smith");
+        assertThat(personCache.stats().hitCount() - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheUncommittedDeposit_whenItIsRolledBack() {
+        final Gate beforeCommit = hooks.arm(BEFORE_COMMIT);
+        final CompletableFuture<Void> future = runAsync(() -> slowService.depositMoney_andFail("John", BigDecimal.TEN));
+        beforeCommit.awaitArrival();
+
+        final Person duringDeposit = personCache.findById("John").orElseThrow();
+        beforeCommit.release();
+        assertThatThrownBy(future::get).hasCauseInstanceOf(RuntimeException.class);
+        final Person afterRollback = personCache.findById("John").orElseThrow();
+
+        assertThat(duringDeposit.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ZERO);
+        assertThat(afterRollback.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void shouldEvictEntry_whenDepositIsCommitted() {
+        personCache.findById("John");
+
+        quickService.depositMoney("John", BigDecimal.ONE);
+        final Person afterDeposit = personCache.findById("John").orElseThrow();
+        quickService.depositMoney_atomic("John", BigDecimal.ONE);
+        final Person afterAtomicDeposit = personCache.findById("John").orElseThrow();
+
+        assertThat(afterDeposit.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ONE);
+        assertThat(afterAtomicDeposit.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(2));
+    }
+
+    @Test
+    //read on the caller's connection may be the caller's own uncommitted change or a dirty read, it is not cached
+    void shouldNotCacheMiss_readInsideCallersTransaction() {
+        final Person inTransaction = transactionTemplate.execute(status -> personCache.findById("John").orElseThrow());
+        final long hitsBefore = personCache.stats().hitCount();
+        final long missesBefore = personCache.stats().missCount();
+
+        personCache.findById("John");
+
+        assertThat(inTransaction.getSurname()).isEqualTo("Smith");
+        assertThat(personCache.stats().hitCount()).isEqualTo(hitsBefore);
+        assertThat(personCache.stats().missCount()).isEqualTo(missesBefore + 1);
+    }
+
+    @Test
+    void shouldEvictEntry_whenDeletedInBatch() {
+        repo.save(Person.builder().name("Jane").surname("Smith").money(BigDecimal.ZERO).build());
+        personCache.findById("John");
+        personCache.findById("Jane");
+
+        repo.deleteInBatch(List.of(repo.findById("John").orElseThrow()));
+        final Optional<Person> john = personCache.findById("John");
+        repo.deleteAllInBatch();
+        final Optional<Person> jane = personCache.findById("Jane");
+
+        assertThat(john).isEmpty();
+        assertThat(jane).isEmpty();
+    }
+
+    @Test
+    void shouldReturnCopy_soCallerCannotChangeCachedPerson() {
+        personCache.findById("John").orElseThrow().setSurname("Wick");
+
+        assertThat(personCache.findById("John").orElseThrow().getSurname()).isEqualTo("Smith");
+    }
+}
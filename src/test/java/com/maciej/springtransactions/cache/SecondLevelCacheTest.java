@@ -0,0 +1,161 @@
+package com.maciej.springtransactions.cache;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import com.maciej.springtransactions.service.isolation.ReactiveQuickService;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Gate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.AFTER_READ;
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.BEFORE_COMMIT;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class SecondLevelCacheTest {
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private SlowService slowService;
+
+    @Autowired
+    private QuickService quickService;
+
+    @Autowired
+    private TransactionPhaseHooks hooks;
+
+    @Autowired
+    private ReactiveQuickService reactiveQuickService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private CacheRegionStatistics persons;
+
+    @BeforeEach
+    void setup() {
+        repo.save(Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        persons = statistics.getDomainDataRegionStatistics("person");
+    }
+
+    @AfterEach
+    void cleanup() {
+        hooks.disarmAll();
+        repo.deleteAll();
+        //deleted John leaves a soft lock, next John inserted with the same version couldn't replace it
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void shouldServeCommittedPersonFromCache_andCountHitsInMetrics() {
+        final long hitsBefore = persons.getHitCount();
+        final double meteredBefore = personHitsMeter().count();
+
+        repo.findById("John");
+        final Person john = slowService.getById_readCommitted("John").orElseThrow();
+
+        assertThat(john.getSurname()).isEqualTo("Smith");
+        assertThat(persons.getHitCount() - hitsBefore).isEqualTo(2);
+        assertThat(personHitsMeter().count() - meteredBefore).isEqualTo(2);
+    }
+
+    //dirty read still goes to the database, the rolled back value never gets into the cache.
+    //Entry stays locked until it expires, reads after the rollback go to the database too
+    @Test
+    void shouldNotServeRolledBackDeposit() {
+        repo.findById("John");
+        final Gate beforeCommit = hooks.arm(BEFORE_COMMIT);
+        final CompletableFuture<Void> future = runAsync(() -> slowService.depositMoney_andFail("John", BigDecimal.TEN));
+        beforeCommit.awaitArrival();
+
+        final Person dirtyJohn = slowService.getById_readUncommitted("John").orElseThrow();
+        beforeCommit.release();
+        assertThatThrownBy(future::get).hasCauseInstanceOf(RuntimeException.class);
+        final Person afterRollback = repo.findById("John").orElseThrow();
+        final Person readAgain = repo.findById("John").orElseThrow();
+
+        assertThat(dirtyJohn.getMoney()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(afterRollback.getMoney()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(readAgain.getMoney()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void shouldServeCommittedDeposits_plainAtomicAndReactive() {
+        repo.findById("John");
+
+        quickService.depositMoney("John", BigDecimal.ONE);
+        final Person afterDeposit = repo.findById("John").orElseThrow();
+        quickService.depositMoney_atomic("John", BigDecimal.ONE);
+        final Person afterAtomicDeposit = repo.findById("John").orElseThrow();
+        reactiveQuickService.depositMoney_atomic("John", BigDecimal.ONE).block();
+        final Person afterReactiveDeposit = repo.findById("John").orElseThrow();
+
+        assertThat(afterDeposit.getMoney()).isEqualByComparingTo("1");
+        assertThat(afterAtomicDeposit.getMoney()).isEqualByComparingTo("2");
+        assertThat(afterReactiveDeposit.getMoney()).isEqualByComparingTo("3");
+    }
+
+    @Test
+    void shouldCacheFindBySurname_untilPersonTableChanges() {
+        repo.findBySurname("Smith");
+        final CacheRegionStatistics bySurname = statistics.getQueryRegionStatistics("person-by-surname");
+        final long hitsBefore = bySurname.getHitCount();
+
+        assertThat(repo.findBySurname("Smith")).extracting(Person::getName).containsExactly("John");
+        quickService.addNewPerson("Jennifer", "Smith");
+        assertThat(repo.findBySurname("Smith")).extracting(Person::getName).containsExactlyInAnyOrder("John", "Jennifer");
+
+        assertThat(bySurname.getHitCount() - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void shouldBypassCache_inRepeatableReadAndSerializableTransactions() {
+        repo.findById("John");
+        repo.findBySurname("Smith");
+        final CacheRegionStatistics bySurname = statistics.getQueryRegionStatistics("person-by-surname");
+        final long personHitsBefore = persons.getHitCount();
+        final long queryHitsBefore = bySurname.getHitCount();
+
+        //released gates, SlowService goes on right after its first read
+        hooks.arm(AFTER_READ).release();
+        slowService.getPersonByIdTwoTimes_transactional("John");
+        hooks.arm(AFTER_READ).release();
+        slowService.getAllWithSurname_transactional("Smith");
+
+        assertThat(persons.getHitCount()).isEqualTo(personHitsBefore);
+        assertThat(bySurname.getHitCount()).isEqualTo(queryHitsBefore);
+    }
+
+    private FunctionCounter personHitsMeter() {
+        return meterRegistry.get("hibernate.second.level.cache.requests")
+                .tag("result", "hit")
+                .functionCounter();
+    }
+}
@@ -0,0 +1,31 @@
+package com.maciej.springtransactions.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//bulk ingest and deferred flush rely on JDBC batches, the startup profile must not turn them off
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles({"h2", "fast-startup"})
+class FastStartupProfileTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void shouldKeepJdbcBatching() {
+        final SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+
+        assertThat(sessionFactory.getSessionFactoryOptions().getJdbcBatchSize()).isEqualTo(50);
+        assertThat(sessionFactory.getSessionFactoryOptions().isJdbcBatchVersionedData()).isTrue();
+    }
+}
@@ -0,0 +1,98 @@
+package com.maciej.springtransactions.config;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "isolation-pools.enabled=true")
+class IsolationPoolsConfigTest {
+
+    @Autowired
+    private IsolationRoutingDataSource dataSource;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private SlowService slowService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setup() {
+        repo.save(Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldRunTransaction_onConnectionPinnedToItsIsolation() {
+        assertThat(isolationSeenBy(TransactionDefinition.ISOLATION_SERIALIZABLE)).isEqualTo(Connection.TRANSACTION_SERIALIZABLE);
+        assertThat(isolationSeenBy(TransactionDefinition.ISOLATION_READ_UNCOMMITTED)).isEqualTo(Connection.TRANSACTION_READ_UNCOMMITTED);
+        assertThat(isolationSeenBy(TransactionDefinition.ISOLATION_REPEATABLE_READ)).isEqualTo(Connection.TRANSACTION_REPEATABLE_READ);
+    }
+
+    @Test
+    void shouldRestoreOuterIsolation_afterRequiresNewTransactionEnds() {
+        final TransactionTemplate outer = template(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        final TransactionTemplate inner = template(TransactionDefinition.ISOLATION_READ_UNCOMMITTED);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        final int[] levels = outer.execute(status -> {
+            final int innerLevel = inner.execute(innerStatus -> connectionIsolation());
+            return new int[]{innerLevel, connectionIsolation()};
+        });
+
+        assertThat(levels).containsExactly(Connection.TRANSACTION_READ_UNCOMMITTED, Connection.TRANSACTION_SERIALIZABLE);
+    }
+
+    @Test
+    void shouldCountSavedIsolationStatements_whenLevelDiffersFromDatabaseDefault() {
+        final long before = dataSource.getSavedStatements();
+
+        slowService.getById_readUncommitted("John");
+        template(TransactionDefinition.ISOLATION_DEFAULT).executeWithoutResult(status -> repo.flush());
+
+        assertThat(dataSource.getSavedStatements() - before).isEqualTo(2);
+    }
+
+    private int isolationSeenBy(int isolation) {
+        return template(isolation).execute(status -> connectionIsolation());
+    }
+
+    private int connectionIsolation() {
+        repo.findById("John");
+        return entityManager.unwrap(Session.class).doReturningWork(Connection::getTransactionIsolation);
+    }
+
+    private TransactionTemplate template(int isolation) {
+        final TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setIsolationLevel(isolation);
+        return template;
+    }
+}
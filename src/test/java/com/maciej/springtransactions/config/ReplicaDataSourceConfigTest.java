@@ -0,0 +1,119 @@
+package com.maciej.springtransactions.config;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.AFTER_READ;
+import static org.assertj.core.api.Assertions.assertThat;
+
+//second in-memory H2 database plays the replica, it is not replicated so every row shows where it was read from
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "replica.datasource.jdbc-url=" + ReplicaDataSourceConfigTest.REPLICA_URL,
+        "replica.datasource.username=sa"})
+class ReplicaDataSourceConfigTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private SlowService slowService;
+
+    @Autowired
+    private QuickService quickService;
+
+    @Autowired
+    private TransactionPhaseHooks hooks;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setup() {
+        replica.execute("create table if not exists person (name varchar(255) not null primary key, "
+                + "money decimal(19,2), surname varchar(255), version bigint not null)");
+        replica.update("insert into person (name, money, surname, version) values ('John', 0, 'Replica', 0)");
+        repo.save(Person.builder().name("John").surname("Primary").money(BigDecimal.ZERO).build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        hooks.disarmAll();
+        replica.update("delete from person");
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldReadFromReplica_whenTransactionIsReadOnly() {
+        assertThat(slowService.getById_readCommitted("John").orElseThrow().getSurname()).isEqualTo("Replica");
+        hooks.arm(AFTER_READ).release();
+        assertThat(slowService.getPersonByIdTwoTimes_transactional("John"))
+                .extracting(Person::getSurname).containsExactly("Replica", "Replica");
+    }
+
+    @Test
+    void shouldReadAndWriteOnPrimary_whenTransactionIsNotReadOnly() {
+        final Person john = new TransactionTemplate(transactionManager).execute(status -> repo.findById("John").orElseThrow());
+
+        assertThat(john.getSurname()).isEqualTo("Primary");
+    }
+
+    @Test
+    //SimpleJpaRepository's own readOnly transactions are not declared by the application, a read after a write sees it
+    void shouldReadFromPrimary_whenRepositoryReadsWithoutTransaction() {
+        final Person john = repo.findById("John").orElseThrow();
+        john.setSurname("Written");
+        repo.save(john);
+
+        assertThat(repo.findById("John").orElseThrow().getSurname()).isEqualTo("Written");
+    }
+
+    @Test
+    //read and write of a deposit without a transaction both go to primary, the replica's stale row is never merged back
+    void shouldDepositOnPrimary_whenReadModifyWriteRunsWithoutTransaction() {
+        quickService.depositMoney("John", BigDecimal.TEN);
+
+        final Person john = new TransactionTemplate(transactionManager).execute(status -> repo.findById("John").orElseThrow());
+        assertThat(john.getSurname()).isEqualTo("Primary");
+        assertThat(john.getMoney()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    //no snapshot kept for dirty checking, so changes are not flushed
+    void shouldLoadReadOnlyEntities_whenTransactionIsReadOnly() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        final boolean readOnlyEntity = readOnly.execute(status -> {
+            final Person john = repo.findById("John").orElseThrow();
+            return entityManager.unwrap(Session.class).isReadOnly(john);
+        });
+
+        assertThat(readOnlyEntity).isTrue();
+    }
+}
@@ -0,0 +1,143 @@
+package com.maciej.springtransactions.metrics;
+
+import com.maciej.springtransactions.cache.PersonCache;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.propagation.MyAnnotatedService;
+import com.maciej.springtransactions.service.propagation.MyAnnotatedService_Propagation;
+import com.maciej.springtransactions.service.propagation.MyTxTemplateService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class InstrumentedTransactionManagerTest {
+
+    private static final String SERVICE = MyAnnotatedService.class.getName();
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MyAnnotatedService myAnnotatedService;
+
+    @Autowired
+    private MyAnnotatedService_Propagation myAnnotatedServicePropagation;
+
+    @Autowired
+    private MyTxTemplateService txTemplateService;
+
+    @Autowired
+    private PersonCache personCache;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @BeforeEach
+    void cleanDb() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldWrapTransactionManager() {
+        assertThat(transactionManager).isInstanceOf(InstrumentedTransactionManager.class);
+    }
+
+    @Test
+    void shouldTimeAnnotatedMethod_andCountCommit() {
+        final double commits = count("transaction.commits", "REQUIRED");
+
+        myAnnotatedService.transactionalMethod();
+
+        assertThat(timerCount(SERVICE + ".transactionalMethod", "commit")).isEqualTo(1);
+        assertThat(count("transaction.commits", "REQUIRED")).isEqualTo(commits + 1);
+        assertThat(registry.find("transaction.begin").tag("propagation", "REQUIRED").timer().count()).isPositive();
+    }
+
+    @Test
+    void shouldCountRollback_whenAnnotatedMethodFails() {
+        final double rollbacks = count("transaction.rollbacks", "REQUIRED");
+
+        assertThatThrownBy(() -> myAnnotatedService.transactionalMethod_whereOneServiceFailsWithRuntime());
+
+        assertThat(timerCount(SERVICE + ".transactionalMethod_whereOneServiceFailsWithRuntime", "rollback")).isEqualTo(1);
+        assertThat(count("transaction.rollbacks", "REQUIRED")).isEqualTo(rollbacks + 1);
+    }
+
+    @Test
+    void shouldCountRollbackOnly_whenJoinedMethodFails() {
+        final double rollbackOnly = count("transaction.rollback.only", "REQUIRED");
+
+        assertThatThrownBy(() -> myAnnotatedServicePropagation.transactionalMethodWithNestedFailingTransactionalMethodWhichHasPropagationRequired());
+
+        assertThat(count("transaction.rollback.only", "REQUIRED")).isEqualTo(rollbackOnly + 1);
+        assertThat(timerCount(MyAnnotatedService_Propagation.class.getName()
+                + ".transactionalMethodWithNestedFailingTransactionalMethodWhichHasPropagationRequired", "rollback"))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountSavepointRollback_whenNestedMethodFails() {
+        final double rollbacks = count("transaction.rollbacks", "NESTED");
+
+        myAnnotatedServicePropagation.transactionalMethodWithNestedFailingTransactionalMethodWhichHasPropagationNested();
+
+        assertThat(count("transaction.rollbacks", "NESTED")).isEqualTo(rollbacks + 1);
+    }
+
+    @Test
+    void shouldTimeTransactionTemplate_underItsName() {
+        final String name = MyTxTemplateService.class.getName() + ".methodWithTransactionTemplate";
+        final long before = timerCount(name, "commit");
+
+        txTemplateService.methodWithTransactionTemplate();
+
+        assertThat(timerCount(name, "commit")).isEqualTo(before + 1);
+    }
+
+    @Test
+    //nothing is looked up per call to name it
+    void shouldTimeUnnamedTransactionTemplate_asUnnamed() {
+        final long before = timerCount(TransactionMeters.UNNAMED, "commit");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> repo.count());
+
+        assertThat(timerCount(TransactionMeters.UNNAMED, "commit")).isEqualTo(before + 1);
+    }
+
+    @Test
+    void shouldTimeNamedTransactionTemplate_underItsName() {
+        final String name = PersonCache.class.getName() + ".findById";
+        final long before = timerCount(name, "commit");
+
+        personCache.findById("missing");
+
+        assertThat(timerCount(name, "commit")).isEqualTo(before + 1);
+    }
+
+    private long timerCount(String name, String outcome) {
+        return registry.find("transaction.duration").tag("name", name).tag("outcome", outcome).timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private double count(String counter, String propagation) {
+        return registry.find(counter).tag("propagation", propagation).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+}
@@ -0,0 +1,96 @@
+package com.maciej.springtransactions.metrics;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Gate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.TransactionTimedOutException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.AFTER_READ;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "transaction.watchdog.threshold=200ms",
+        "transaction.watchdog.check-interval-ms=50",
+        "transaction.watchdog.action=ROLLBACK_ONLY"})
+class TransactionWatchdogTest {
+
+    @Autowired
+    private TransactionWatchdog watchdog;
+
+    @Autowired
+    private TransactionsEndpoint endpoint;
+
+    @Autowired
+    private SlowService slowService;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private TransactionPhaseHooks hooks;
+
+    @BeforeEach
+    void setup() {
+        repo.save(Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        hooks.disarmAll();
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldListOpenTransaction() throws ExecutionException, InterruptedException {
+        final Gate afterRead = hooks.arm(AFTER_READ);
+        final CompletableFuture<Void> future = runAsync(() -> slowService.depositMoney_transactional("John", BigDecimal.TEN));
+        afterRead.awaitArrival();
+
+        final List<OpenTransaction> open = endpoint.openTransactions();
+        final List<String> stack = open.get(0).getStackTrace();
+        afterRead.release();
+        future.get();
+
+        assertThat(open).hasSize(1);
+        assertThat(open.get(0).getName()).isEqualTo(SlowService.class.getName() + ".depositMoney_transactional");
+        assertThat(open.get(0).getIsolation()).isEqualTo("SERIALIZABLE");
+        assertThat(stack).anyMatch(frame -> frame.contains("SlowService.slowdown"));
+        assertThat(endpoint.openTransactions()).isEmpty();
+    }
+
+    @Test
+    //SlowService keeps its transaction open at the gate until the watchdog has reported it
+    void shouldRollbackTransaction_whenItExceedsThreshold() throws InterruptedException {
+        final long reported = watchdog.getReported();
+
+        final Gate afterRead = hooks.arm(AFTER_READ);
+        final CompletableFuture<Void> future = runAsync(() -> slowService.depositMoney_transactional("John", BigDecimal.TEN));
+        afterRead.awaitArrival();
+        while (watchdog.getReported() == reported) {
+            Thread.sleep(10);
+        }
+        afterRead.release();
+
+        assertThatThrownBy(future::get).hasCauseInstanceOf(TransactionTimedOutException.class);
+        assertThat(watchdog.getReported()).isEqualTo(reported + 1);
+        assertThat(repo.findById("John").orElseThrow().getMoney())
+                .usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,57 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//JPA slice: only the datasource, Hibernate and repositories are started, no services, web or metrics.
+//Every test runs in its own transaction rolled back at the end
+@DataJpaTest
+class InMemoryRepoTest {
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @BeforeEach
+    void setup() {
+        repo.saveAll(IntStream.range(0, 5)
+                .mapToObj(i -> Person.builder().name("R" + i).surname(i % 2 == 0 ? "Even" : "Odd").money(BigDecimal.TEN).build())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldAddMoney_andBumpVersion() {
+        final long version = repo.findById("R1").orElseThrow().getVersion();
+
+        assertThat(repo.addMoneyAndGet("R1", BigDecimal.ONE)).isEqualByComparingTo("11");
+        assertThat(repo.findById("R1").orElseThrow().getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void shouldNotFindMoney_ofMissingPerson() {
+        assertThat(repo.addMoney("missing", BigDecimal.ONE)).isZero();
+        assertThat(repo.findMoneyById("missing")).isEmpty();
+    }
+
+    @Test
+    void shouldFindBySurname() {
+        assertThat(repo.findBySurname("Odd")).extracting(Person::getName).containsExactlyInAnyOrder("R1", "R3");
+    }
+
+    @Test
+    void shouldReadKeysetPages() {
+        assertThat(repo.findBySurnameAndNameGreaterThanOrderByNameAsc("Even", "", PageRequest.of(0, 2)))
+                .extracting(Person::getName).containsExactly("R0", "R2");
+        assertThat(repo.findBySurnameAndNameGreaterThanOrderByNameAsc("Even", "R2", PageRequest.of(0, 2)))
+                .extracting(Person::getName).containsExactly("R4");
+    }
+}
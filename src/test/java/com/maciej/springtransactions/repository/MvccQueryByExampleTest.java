@@ -0,0 +1,8 @@
+package com.maciej.springtransactions.repository;
+
+import org.springframework.test.context.ActiveProfiles;
+
+//same scenarios against MvccStore instead of the database
+@ActiveProfiles("mvcc")
+class MvccQueryByExampleTest extends QueryByExampleTest {
+}
@@ -0,0 +1,85 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "streaming.fetch-size=2")
+class PersonScannerTest {
+
+    @Autowired
+    private PersonScanner personScanner;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setup() {
+        repo.deleteAll();
+        repo.saveAll(List.of(person("John", "Smith"), person("Jennifer", "Smith"), person("Will", "Smith"),
+                person("Jane", "Doe")));
+    }
+
+    @Test
+    void shouldVisitEveryPersonWithSurname() {
+        final List<String> names = new ArrayList<>();
+
+        final long count = personScanner.forEachWithSurname("Smith", person -> names.add(person.getName()));
+
+        assertThat(count).isEqualTo(3);
+        assertThat(names).containsExactlyInAnyOrder("John", "Jennifer", "Will");
+    }
+
+    @Test
+    //persistence context doesn't grow during the scan even when it joins caller's transaction
+    void shouldHandOverDetachedPersons_whenScanningAll() {
+        final List<Boolean> managed = new ArrayList<>();
+
+        final long count = transactionTemplate.execute(status ->
+                personScanner.forEach(person -> managed.add(entityManager.contains(person))));
+
+        assertThat(count).isEqualTo(4);
+        assertThat(managed).containsOnly(false);
+    }
+
+    @Test
+    //scan joining caller's transaction must not detach what the caller loaded before, or its changes would be lost
+    void shouldKeepCallersPersonsManaged_whenScanJoinsTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final List<Person> smiths = repo.findBySurname("Smith");
+
+            personScanner.forEach(person -> {
+            });
+
+            assertThat(smiths).allMatch(entityManager::contains);
+            smiths.forEach(person -> person.setMoney(BigDecimal.TEN));
+        });
+
+        assertThat(repo.findBySurname("Smith")).extracting(Person::getMoney)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsOnly(BigDecimal.TEN);
+    }
+
+    private Person person(String name, String surname) {
+        return Person.builder().name(name).surname(surname).money(BigDecimal.ZERO).build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {"persistence.deferred-flush=true", "spring.jpa.properties.hibernate.generate_statistics=true"})
+class PersonWriterTest {
+
+    private static final List<String> NAMES = List.of("John", "Jane", "Jack");
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private QuickService quickService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        NAMES.forEach(name -> repo.save(Person.builder().name(name).surname("Smith").money(BigDecimal.ZERO).build()));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldFlushAllServiceWritesOnce_atCommit() {
+        transactionTemplate.executeWithoutResult(status ->
+                NAMES.forEach(name -> quickService.depositMoney_transactional(name, BigDecimal.ONE)));
+
+        assertThat(statistics.getFlushCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(3);
+        NAMES.forEach(name -> assertThat(repo.findMoneyById(name).orElseThrow())
+                .usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ONE));
+    }
+
+    @Test
+    void shouldFlushPendingWrites_beforeQueryReadingThem() {
+        final BigDecimal seenInTransaction = transactionTemplate.execute(status -> {
+            quickService.depositMoney_transactional("John", BigDecimal.TEN);
+            return repo.findMoneyById("John").orElseThrow();
+        });
+
+        assertThat(seenInTransaction).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.TEN);
+    }
+}
@@ -0,0 +1,104 @@
+package com.maciej.springtransactions.repository;
+
+import com.maciej.springtransactions.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class QueryByExampleTest {
+
+    //Person.version is a primitive, a probe always carries it
+    private static final ExampleMatcher IGNORING_VERSION = ExampleMatcher.matching().withIgnorePaths("version");
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @BeforeEach
+    void setup() {
+        repo.deleteAll();
+        repo.saveAll(List.of(person("John", "Smith", BigDecimal.TEN), person("Jennifer", "Smith", BigDecimal.ONE),
+                person("Jane", "Doe", BigDecimal.TEN), person("Will", null, BigDecimal.ZERO)));
+    }
+
+    @Test
+    void shouldMatchNonNullProperties() {
+        final Example<Person> smithsWithTen = Example.of(probe("Smith", new BigDecimal("10.00")), IGNORING_VERSION);
+
+        assertThat(repo.findAll(smithsWithTen)).extracting(Person::getName).containsExactly("John");
+        assertThat(repo.count(Example.of(probe("Smith", null), IGNORING_VERSION))).isEqualTo(2);
+        assertThat(repo.exists(Example.of(probe("Nobody", null), IGNORING_VERSION))).isFalse();
+    }
+
+    @Test
+    void shouldCompareVersion_unlessIgnored() {
+        final Person john = repo.findById("John").orElseThrow();
+        john.setMoney(BigDecimal.ZERO);
+        repo.save(john);
+
+        assertThat(repo.findAll(Example.of(probe("Smith", null)))).extracting(Person::getName).containsExactly("Jennifer");
+    }
+
+    @Test
+    void shouldMatchStringsByMatcher() {
+        final ExampleMatcher startingIgnoringCase = IGNORING_VERSION
+                .withStringMatcher(ExampleMatcher.StringMatcher.STARTING).withIgnoreCase();
+
+        assertThat(repo.findAll(Example.of(probe("sm", null), startingIgnoringCase), Sort.by("name")))
+                .extracting(Person::getName).containsExactly("Jennifer", "John");
+    }
+
+    @Test
+    void shouldMatchAny() {
+        final ExampleMatcher any = ExampleMatcher.matchingAny().withIgnorePaths("version");
+
+        assertThat(repo.findAll(Example.of(probe("Doe", BigDecimal.ONE), any)))
+                .extracting(Person::getName).containsExactlyInAnyOrder("Jennifer", "Jane");
+    }
+
+    @Test
+    void shouldMatchNull_whenIncluded() {
+        final ExampleMatcher includingNulls = IGNORING_VERSION.withIncludeNullValues().withIgnorePaths("name", "money");
+
+        assertThat(repo.findOne(Example.of(probe(null, null), includingNulls))).map(Person::getName).hasValue("Will");
+    }
+
+    @Test
+    void shouldFailFindOne_whenMoreMatch() {
+        assertThatThrownBy(() -> repo.findOne(Example.of(probe("Smith", null), IGNORING_VERSION)))
+                .isInstanceOf(IncorrectResultSizeDataAccessException.class);
+    }
+
+    @Test
+    void shouldPage() {
+        final Page<Person> page = repo.findAll(Example.of(probe(null, BigDecimal.TEN), IGNORING_VERSION),
+                PageRequest.of(1, 1, Sort.by("name")));
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(Person::getName).containsExactly("John");
+    }
+
+    private Person probe(String surname, BigDecimal money) {
+        return Person.builder().surname(surname).money(money).build();
+    }
+
+    private Person person(String name, String surname, BigDecimal money) {
+        return Person.builder().name(name).surname(surname).money(money).build();
+    }
+}
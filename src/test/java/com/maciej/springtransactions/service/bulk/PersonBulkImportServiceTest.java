@@ -0,0 +1,89 @@
+package com.maciej.springtransactions.service.bulk;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "bulk.chunk-size=100")
+class PersonBulkImportServiceTest {
+
+    @Autowired
+    private PersonBulkImportService bulkImportService;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void cleanDb() {
+        repo.deleteAll();
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldImportGoodRows_andRejectOnlyBadOnes() {
+        repo.save(person(150));
+        final List<Person> input = Stream.concat(
+                IntStream.range(0, 1000).mapToObj(this::person),
+                Stream.of(person(7), Person.builder().surname("Bulk").money(BigDecimal.ONE).build()))
+                .collect(Collectors.toList());
+
+        final BulkImportResult result = bulkImportService.importAll(input);
+
+        assertThat(result.getImported()).isEqualTo(999);
+        assertThat(result.getRejected())
+                .extracting(rejected -> rejected.getPerson().getName())
+                .containsExactlyInAnyOrder("P150", "P7", null);
+        assertThat(result.getRejected()).allSatisfy(rejected -> assertThat(rejected.getReason()).isNotBlank());
+        assertThat(repo.count()).isEqualTo(1000);
+        assertThat(repo.findById("P999").orElseThrow().getMoney()).isEqualByComparingTo(BigDecimal.TEN);
+    }
+
+    @Test
+    //chunks are savepoints, not transactions: rolling back the caller's transaction undoes the whole import
+    void shouldImportInCallersTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            bulkImportService.importAll(IntStream.range(0, 250).mapToObj(this::person));
+            status.setRollbackOnly();
+        });
+
+        assertThat(repo.count()).isZero();
+    }
+
+    @Test
+    //rows are inserted behind Hibernate's back, cached query results must not hide them
+    void shouldEvictCachedQueryResults_whenImportCommits() {
+        repo.save(person(1000));
+        assertThat(repo.findBySurname("Bulk")).hasSize(1);
+
+        bulkImportService.importAll(IntStream.range(0, 10).mapToObj(this::person));
+
+        assertThat(repo.findBySurname("Bulk")).hasSize(11);
+    }
+
+    private Person person(int i) {
+        return Person.builder().name("P" + i).surname("Bulk").money(BigDecimal.TEN).build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.maciej.springtransactions.service.bulk;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "bulk.chunk-size=100")
+class PersonBulkIngestServiceTest {
+
+    @Autowired
+    private PersonBulkIngestService bulkIngestService;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @BeforeEach
+    void cleanDb() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldPersistAllPersons_whenStreamIsLongerThanOneChunk() {
+
+        final long ingested = bulkIngestService.ingest(IntStream.range(0, 250).mapToObj(this::person));
+
+        assertThat(ingested).isEqualTo(250);
+        assertThat(repo.count()).isEqualTo(250);
+        assertThat(repo.findById("P249").orElseThrow().getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.TEN);
+    }
+
+    @Test
+    //all chunks are flushed within one transaction, so one duplicate rolls back everything
+    void shouldRollbackWholeIngest_whenOnePersonAlreadyExists() {
+        repo.save(person(150));
+
+        assertThrows(RuntimeException.class, () -> bulkIngestService.ingest(List.of(person(0), person(150))));
+
+        assertThat(repo.count()).isEqualTo(1);
+    }
+
+    private Person person(int i) {
+        return Person.builder().name("P" + i).surname("Bulk").money(BigDecimal.TEN).build();
+    }
+}
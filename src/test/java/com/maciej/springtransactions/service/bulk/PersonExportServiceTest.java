@@ -0,0 +1,103 @@
+package com.maciej.springtransactions.service.bulk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+//same properties as PersonScannerTest, the cached context is reused
+@SpringBootTest(properties = "streaming.fetch-size=2")
+class PersonExportServiceTest {
+
+    private static final int ROWS = 3000;
+
+    @Autowired
+    private PersonExportService exportService;
+
+    @Autowired
+    private PersonBulkIngestService bulkIngestService;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    void setup() {
+        repo.deleteAll();
+        bulkIngestService.ingest(IntStream.range(0, ROWS)
+                .mapToObj(i -> Person.builder().name("P" + i).surname("Export").money(BigDecimal.valueOf(i, 2)).build()));
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAllInBatch();
+    }
+
+    //many more rows than fit in the default 64K buffer or in one fetch
+    @Test
+    void shouldExportEveryPersonAsJsonLine() throws IOException {
+        repo.save(Person.builder().name("Quote\"d \\ name").surname(null).money(null).build());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final long exported = exportService.export(PersonExportService.Format.NDJSON, out);
+
+        final List<String> lines = out.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+        assertThat(exported).isEqualTo(ROWS + 1);
+        assertThat(lines).hasSize(ROWS + 1);
+        final JsonNode p999 = json(lines, "P999");
+        assertThat(p999.get("surname").asText()).isEqualTo("Export");
+        assertThat(p999.get("money").decimalValue()).isEqualByComparingTo("9.99");
+        assertThat(p999.get("version").asLong()).isZero();
+        final JsonNode quoted = json(lines, "Quote\"d \\ name");
+        assertThat(quoted.get("surname").isNull()).isTrue();
+        assertThat(quoted.get("money").isNull()).isTrue();
+    }
+
+    @Test
+    void shouldExportCsvWithHeader_andQuoteOnlyWhatNeedsIt() {
+        repo.save(Person.builder().name("Smith, \"Jr\"").surname("Export").money(BigDecimal.ONE).build());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final long exported = exportService.export(PersonExportService.Format.CSV, out);
+
+        final List<String> lines = out.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+        assertThat(exported).isEqualTo(ROWS + 1);
+        assertThat(lines).hasSize(ROWS + 2);
+        assertThat(lines.get(0)).isEqualTo("name,surname,money,version");
+        assertThat(lines).contains("P5,Export,0.05,0", "\"Smith, \"\"Jr\"\"\",Export,1.00,0");
+    }
+
+    private JsonNode json(List<String> lines, String name) {
+        return lines.stream()
+                .map(line -> {
+                    try {
+                        return mapper.readTree(line);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .filter(node -> node.get("name").asText().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,80 @@
+package com.maciej.springtransactions.service.isolation;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "deposit.group-commit.window=20ms")
+class GroupCommitDepositServiceTest {
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private GroupCommitDepositService depositService;
+
+    @BeforeEach
+    void setup() {
+        repo.save(Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build());
+        repo.save(Person.builder().name("Jane").surname("Smith").money(BigDecimal.ZERO).build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldApplyEveryDeposit_inFewerTransactionsThanRequests() {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final long batchesBefore = depositService.getBatches();
+
+        final List<CompletableFuture<Void>> deposits = IntStream.range(0, 200)
+                .mapToObj(i -> CompletableFuture.supplyAsync(
+                        () -> depositService.depositMoney(i % 2 == 0 ? "John" : "Jane", BigDecimal.ONE), executor)
+                        .thenCompose(deposit -> deposit))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(deposits.toArray(CompletableFuture[]::new)).join();
+        executor.shutdown();
+
+        assertThat(repo.findMoneyById("John").orElseThrow()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(100));
+        assertThat(repo.findMoneyById("Jane").orElseThrow()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(100));
+        assertThat(depositService.getBatches() - batchesBefore).isLessThan(200);
+    }
+
+    @Test
+    void shouldFailOnlyRequestsOfBadAccount_whenBatchedTogether() {
+        final CompletableFuture<Void> john = depositService.depositMoney("John", BigDecimal.TEN);
+        final CompletableFuture<Void> nobody = depositService.depositMoney("Nobody", BigDecimal.TEN);
+        final CompletableFuture<Void> overflow = depositService.depositMoney("Jane", new BigDecimal("1e30"));
+        final CompletableFuture<Void> jane = depositService.depositMoney("Jane", BigDecimal.ONE);
+
+        john.join();
+        assertThatThrownBy(nobody::join).hasCauseInstanceOf(NoSuchElementException.class);
+        //too big for the money column, fails the summed update of Jane, then alone when her deposits are repeated one by one
+        assertThatThrownBy(overflow::join).hasCauseInstanceOf(DataIntegrityViolationException.class);
+        jane.join();
+        assertThat(repo.findMoneyById("John").orElseThrow()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.TEN);
+        assertThat(repo.findMoneyById("Jane").orElseThrow()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ONE);
+    }
+}
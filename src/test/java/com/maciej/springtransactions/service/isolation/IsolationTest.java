@@ -2,28 +2,40 @@ package com.maciej.springtransactions.service.isolation;
 
 import com.maciej.springtransactions.model.Person;
 import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.repository.LockWait;
+import com.maciej.springtransactions.retry.LockRetryAspect;
+import com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Gate;
 import org.hibernate.exception.LockAcquisitionException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.AFTER_READ;
+import static com.maciej.springtransactions.service.isolation.TransactionPhaseHooks.Phase.BEFORE_COMMIT;
 import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+//SlowService stops at a gate until the competing operation is done, no sleeps
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
 class IsolationTest {
@@ -37,23 +49,39 @@ class IsolationTest {
     @Autowired
     private QuickService quickService;
 
+    @Autowired
+    private TransactionPhaseHooks hooks;
+
+    @Autowired
+    private LockRetryAspect lockRetryAspect;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readCommitted;
+
     @BeforeEach
     void setup() {
+        readCommitted = new TransactionTemplate(transactionManager);
+        readCommitted.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
         Person person = Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build();
         repo.save(person);
     }
 
     @AfterEach
     void cleanup() {
+        hooks.disarmAll();
         repo.deleteAll();
     }
 
     @Test
     @DisplayName("should read uncommitted data")
     void dirtyRead() {
+        final Gate beforeCommit = hooks.arm(BEFORE_COMMIT);
         final CompletableFuture<Void> future = runAsync(() -> slowService.depositMoney_andFail("John", BigDecimal.TEN));
-        sleep(100);
+        beforeCommit.awaitArrival();
         final Person dirtyJohn = slowService.getById_readUncommitted("John").orElseThrow();
+        beforeCommit.release();
 
         try {
             future.get();
@@ -69,9 +97,11 @@ class IsolationTest {
     @Test
     @DisplayName("should read uncommitted data")
     void read() {
+        final Gate beforeCommit = hooks.arm(BEFORE_COMMIT);
         final CompletableFuture<Void> future = runAsync(() -> slowService.depositMoney_andFail("John", BigDecimal.TEN));
-        sleep(100);
+        beforeCommit.awaitArrival();
         final Person dirtyJohn = slowService.getById_readCommitted("John").orElseThrow();
+        beforeCommit.release();
 
         try {
             future.get();
@@ -85,30 +115,65 @@ class IsolationTest {
     }
 
     @Test
-    @DisplayName("should lose update from QuickService")
-    void lostUpdate() throws ExecutionException, InterruptedException {
+    //without @Version on Person SlowService would overwrite the deposit from QuickService and john would have 10
+    @DisplayName("should reject stale update from SlowService instead of losing update from QuickService")
+    void lostUpdate() {
 
+        final Gate afterRead = hooks.arm(AFTER_READ);
         final CompletableFuture<Void> future = runAsync(() -> slowService.depositMoney("John", BigDecimal.TEN));
+        afterRead.awaitArrival();
         quickService.depositMoney("John", BigDecimal.ONE);
-        future.get();
+        afterRead.release();
+
+        assertThatThrownBy(future::get).hasCauseInstanceOf(OptimisticLockingFailureException.class);
+
+        final Person john = repo.findById("John").orElseThrow();
+
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ONE);
+    }
 
+    @Test
+    @DisplayName("should keep both deposits when they are applied as atomic increments")
+    void noLostUpdate_whenDepositsAreAtomic() throws ExecutionException, InterruptedException {
+
+        //SlowService holds its uncommitted increment, the quick one starts from the committed 0 and has to wait for it
+        final Gate beforeCommit = hooks.arm(BEFORE_COMMIT);
+        final CompletableFuture<Void> slowDeposit = runAsync(() -> slowService.depositMoney_atomic("John", BigDecimal.TEN));
+        beforeCommit.awaitArrival();
+        final AtomicReference<Thread> quickThread = new AtomicReference<>();
+        final CompletableFuture<Void> quickDeposit = runAsync(() -> {
+            quickThread.set(Thread.currentThread());
+            quickService.depositMoney_atomic("John", BigDecimal.ONE);
+        });
+        awaitWaiting(quickThread);
+        final boolean quickDoneBeforeCommit = quickDeposit.isDone();
+        beforeCommit.release();
+        slowDeposit.get();
+        quickDeposit.get();
+
+        assertThat(quickDoneBeforeCommit).isFalse();
         final Person john = repo.findById("John").orElseThrow();
 
-        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.TEN);
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(11));
+        assertThat(repo.addMoneyAndGet("John", BigDecimal.ONE)).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(12));
     }
 
     @Test
-//    @Disabled("doesn't work, at least with H2")
     @DisplayName("should throw exception when resource is locked by other transaction")
     void update() throws ExecutionException, InterruptedException {
 
+        //after the read nothing is locked yet, SlowService waits before commit holding the lock of the updated row
+        final Gate afterRead = hooks.arm(AFTER_READ);
+        final Gate beforeCommit = hooks.arm(BEFORE_COMMIT);
+        afterRead.release();
         final CompletableFuture<Void> future =
                 runAsync(() -> slowService.depositMoney_transactional("John", BigDecimal.TEN));
-        sleep(100);
+        beforeCommit.awaitArrival();
 
         assertThatThrownBy(() -> quickService.depositMoney_transactional("John", BigDecimal.ONE))
                 .isInstanceOf(CannotAcquireLockException.class);
 
+        beforeCommit.release();
         future.get();
 
         final Person john = repo.findById("John").orElseThrow();
@@ -116,20 +181,90 @@ class IsolationTest {
         assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(10));
     }
 
+    @Test
+    @DisplayName("should repeat transaction that timed out on the row lock once the lock is released")
+    void update_withRetry() throws ExecutionException, InterruptedException {
+        final long retriesBefore = lockRetryAspect.getStats().getRetries();
+
+        final Gate afterRead = hooks.arm(AFTER_READ);
+        final Gate beforeCommit = hooks.arm(BEFORE_COMMIT);
+        afterRead.release();
+        //the lock holder rolls back, a retry that read the row before that doesn't lose its version check
+        final CompletableFuture<Void> slow = runAsync(() -> {
+            try {
+                slowService.depositMoney_andFail("John", BigDecimal.TEN);
+            } catch (RuntimeException expected) {
+            }
+        });
+        beforeCommit.awaitArrival();
+        final CompletableFuture<Void> quick =
+                runAsync(() -> quickService.depositMoney_transactionalWithRetry("John", BigDecimal.ONE));
+        //first attempt ran into the lock timeout, the next one waits for the lock released here
+        while (lockRetryAspect.getStats().getRetries() == retriesBefore) {
+            Thread.sleep(10);
+        }
+        beforeCommit.release();
+        slow.get();
+        quick.get();
+
+        final Person john = repo.findById("John").orElseThrow();
+
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.ONE);
+    }
+
+    @Test
+    @DisplayName("should make concurrent deposit wait for the row lock instead of losing or rejecting it")
+    void noLostUpdate_whenDepositsLockTheRow() throws ExecutionException, InterruptedException {
+
+        final Gate afterRead = hooks.arm(AFTER_READ);
+        final CompletableFuture<Void> slowDeposit = runAsync(() -> slowService.depositMoney_locking("John", BigDecimal.TEN));
+        afterRead.awaitArrival();
+        final CompletableFuture<Void> quickDeposit = runAsync(() -> quickService.depositMoney_locking("John", BigDecimal.ONE));
+        afterRead.release();
+        slowDeposit.get();
+        quickDeposit.get();
+
+        final Person john = repo.findById("John").orElseThrow();
+
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(11));
+    }
+
+    @Test
+    @DisplayName("should fail at once with NOWAIT and find nothing with SKIP LOCKED while the row is locked")
+    void lockedRow_nowaitAndSkipLocked() throws ExecutionException, InterruptedException {
+
+        final Gate afterRead = hooks.arm(AFTER_READ);
+        final CompletableFuture<Void> future = runAsync(() -> slowService.depositMoney_locking("John", BigDecimal.TEN));
+        afterRead.awaitArrival();
+
+        assertThatThrownBy(() -> readCommitted.execute(status -> repo.findByIdForUpdate("John", LockWait.NOWAIT)))
+                .isInstanceOf(PessimisticLockingFailureException.class);
+        final Optional<Person> skipped = readCommitted.execute(status -> repo.findByIdForUpdate("John", LockWait.SKIP_LOCKED));
+
+        afterRead.release();
+        future.get();
+
+        final Optional<Person> unlocked = readCommitted.execute(status -> repo.findByIdForUpdate("John", LockWait.SKIP_LOCKED));
+        assertThat(skipped).isEmpty();
+        assertThat(unlocked).hasValueSatisfying(john -> assertThat(john.getMoney()).isEqualByComparingTo(BigDecimal.TEN));
+    }
+
     @Test
     @DisplayName("should return 2 different results when retrievals are not in transaction")
     void unrepeatableReads() throws ExecutionException, InterruptedException {
 
+        final Gate afterRead = hooks.arm(AFTER_READ);
         final CompletableFuture<List<Person>> twoJohnsFuture = supplyAsync(() -> slowService.getPersonByIdTwoTimes("John"));
-        sleep(100);
+        afterRead.awaitArrival();
         quickService.updateSurname("John", "Wick");
+        afterRead.release();
 
         final List<Person> twoJohns = twoJohnsFuture.get();
         final Person firstRetrieval = twoJohns.get(0);
         final Person secondRetrieval = twoJohns.get(1);
         final Person actual = repo.findById("John").orElseThrow();
 
-        assertThat(firstRetrieval).isNotEqualTo(secondRetrieval);
+        assertThat(firstRetrieval.getSurname()).isNotEqualTo(secondRetrieval.getSurname());
         assertThat(actual.getSurname()).isEqualTo("Wick");
     }
 
@@ -137,10 +272,12 @@ class IsolationTest {
     @DisplayName("should return 2 same results when retrievals are in transaction")
     void repeatableReads() throws ExecutionException, InterruptedException {
 
+        final Gate afterRead = hooks.arm(AFTER_READ);
         final CompletableFuture<List<Person>> twoJohnsFuture =
                 supplyAsync(() -> slowService.getPersonByIdTwoTimes_transactional("John"));
-        sleep(100);
+        afterRead.awaitArrival();
         quickService.updateSurname("John", "Wick");
+        afterRead.release();
 
         final List<Person> twoJohns = twoJohnsFuture.get();
         final Person firstRetrieval = twoJohns.get(0);
@@ -148,7 +285,7 @@ class IsolationTest {
         final Person actual = repo.findById("John").orElseThrow();
 
         assertThat(firstRetrieval.getSurname()).isEqualTo("Smith");
-        assertThat(firstRetrieval).isEqualTo(secondRetrieval);
+        assertThat(secondRetrieval.getSurname()).isEqualTo("Smith");
         assertThat(actual.getSurname()).isEqualTo("Wick");
     }
 
@@ -156,10 +293,12 @@ class IsolationTest {
     @DisplayName("should return 2 different result sets when retrievals are in read_committed transaction")
     void phantomReads() throws ExecutionException, InterruptedException {
 
+        final Gate afterRead = hooks.arm(AFTER_READ);
         final CompletableFuture<List<List<Person>>> twoResultsFuture =
                 supplyAsync(() -> slowService.getAllWithSurname("Smith"));
-        sleep(500);
+        afterRead.awaitArrival();
         quickService.addNewPerson("Jennifer", "Smith");
+        afterRead.release();
 
         final List<List<Person>> twoResultSets = twoResultsFuture.get();
 
@@ -171,10 +310,12 @@ class IsolationTest {
     @DisplayName("should return 2 same result sets when retrievals are not in transaction")
     void noPhantomReads() throws ExecutionException, InterruptedException {
 
+        final Gate afterRead = hooks.arm(AFTER_READ);
         final CompletableFuture<List<List<Person>>> twoResultsFuture =
                 supplyAsync(() -> slowService.getAllWithSurname_transactional("Smith"));
-        sleep(500);
+        afterRead.awaitArrival();
         quickService.addNewPerson("Jennifer", "Smith");
+        afterRead.release();
 
         final List<List<Person>> twoResultSets = twoResultsFuture.get();
 
@@ -182,12 +323,11 @@ class IsolationTest {
         assertThat(twoResultSets.get(0).size()).isEqualTo(twoResultSets.get(1).size());
     }
 
-    private void sleep(int ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    //the thread parks only when its statement waits for the row lock
+    private static void awaitWaiting(AtomicReference<Thread> thread) throws InterruptedException {
+        while (thread.get() == null || thread.get().getState() == Thread.State.RUNNABLE
+                || thread.get().getState() == Thread.State.NEW) {
+            Thread.sleep(1);
         }
     }
-
 }
@@ -0,0 +1,8 @@
+package com.maciej.springtransactions.service.isolation;
+
+import org.springframework.test.context.ActiveProfiles;
+
+//same scenarios against MvccStore instead of the database
+@ActiveProfiles("mvcc")
+class MvccIsolationTest extends IsolationTest {
+}
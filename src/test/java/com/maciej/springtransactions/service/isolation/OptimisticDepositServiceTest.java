@@ -0,0 +1,60 @@
+package com.maciej.springtransactions.service.isolation;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "retry.optimistic.max-attempts=100")
+class OptimisticDepositServiceTest {
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private OptimisticDepositService depositService;
+
+    @BeforeEach
+    void setup() {
+        Person person = Person.builder().name("John").surname("Smith").money(BigDecimal.ZERO).build();
+        repo.save(person);
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldNotLoseAnyDeposit_whenManyThreadsDepositToSameAccount() {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final long callsBefore = depositService.getStats().getCalls();
+
+        final CompletableFuture<?>[] deposits = IntStream.range(0, 40)
+                .mapToObj(i -> runAsync(() -> depositService.depositMoney("John", BigDecimal.ONE), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(deposits).join();
+        executor.shutdown();
+
+        final Person john = repo.findById("John").orElseThrow();
+
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(40));
+        assertThat(depositService.getStats().getCalls() - callsBefore).isEqualTo(40);
+        assertThat(depositService.getStats().getExhausted()).isZero();
+    }
+}
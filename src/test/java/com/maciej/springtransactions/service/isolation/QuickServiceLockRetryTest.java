@@ -0,0 +1,109 @@
+package com.maciej.springtransactions.service.isolation;
+
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.retry.LockRetryAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//MvccStore gives up waiting for a row lock after 200ms, so a second writer of a row held for 1s always fails once.
+//The row is held by a write that is rolled back, so the retried read-modify-write never sees a newer version
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "retry.lock.max-attempts=20")
+@ActiveProfiles("mvcc")
+class QuickServiceLockRetryTest {
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private SlowService slowService;
+
+    @Autowired
+    private QuickService quickService;
+
+    @Autowired
+    private LockRetryAspect lockRetryAspect;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        Person person = Person.builder().name("John").surname("Smith").money(BigDecimal.TEN).build();
+        repo.save(person);
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldRepeatTransaction_whenRowIsLockedLongerThanLockTimeout() throws InterruptedException {
+        final long retriesBefore = lockRetryAspect.getStats().getRetries();
+
+        final CompletableFuture<Void> slow = runAsync(this::holdLockAndRollBack);
+        awaitUncommittedWrite();
+        quickService.depositMoney_transactionalWithRetry("John", BigDecimal.ONE);
+        slow.join();
+
+        final Person john = repo.findById("John").orElseThrow();
+
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.valueOf(11));
+        assertThat(lockRetryAspect.getStats().getRetries()).isGreaterThan(retriesBefore);
+        assertThat(meterRegistry.get("transaction.lock.retries").functionCounter().count()).isPositive();
+    }
+
+    @Test
+    void shouldNotRetry_whenCalledInsideRunningTransaction() throws InterruptedException {
+        final long retriesBefore = lockRetryAspect.getStats().getRetries();
+
+        final CompletableFuture<Void> slow = runAsync(this::holdLockAndRollBack);
+        awaitUncommittedWrite();
+        final TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        assertThatThrownBy(() -> outer.executeWithoutResult(status ->
+                quickService.depositMoney_transactionalWithRetry("John", BigDecimal.ONE)))
+                .isInstanceOf(CannotAcquireLockException.class);
+        slow.join();
+
+        final Person john = repo.findById("John").orElseThrow();
+
+        assertThat(john.getMoney()).usingComparator(BigDecimal::compareTo).isEqualTo(BigDecimal.TEN);
+        assertThat(lockRetryAspect.getStats().getRetries()).isEqualTo(retriesBefore);
+    }
+
+    //READ_UNCOMMITTED sees the pending version once the slow transaction holds the row lock
+    private void awaitUncommittedWrite() throws InterruptedException {
+        while (slowService.getById_readUncommitted("John").orElseThrow().getMoney().compareTo(BigDecimal.TEN) == 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void holdLockAndRollBack() {
+        try {
+            slowService.depositMoney_andFail("John", BigDecimal.ONE);
+        } catch (RuntimeException expected) {
+        }
+    }
+}
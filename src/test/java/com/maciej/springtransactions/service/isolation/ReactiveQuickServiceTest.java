@@ -0,0 +1,115 @@
+package com.maciej.springtransactions.service.isolation;
+
+import com.maciej.springtransactions.cache.PersonCache;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class ReactiveQuickServiceTest {
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private ReactiveQuickService reactiveQuickService;
+
+    @Autowired
+    private TransactionalOperator reactiveTransactions;
+
+    @Autowired
+    private PersonCache personCache;
+
+    @BeforeEach
+    void setup() {
+        repo.save(Person.builder().name("John").surname("Reactive").money(BigDecimal.TEN).build());
+        repo.save(Person.builder().name("Jane").surname("Reactive").money(BigDecimal.TEN).build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldReadWhatJpaWrote() {
+        final Person jpaJohn = repo.findById("John").orElseThrow();
+        assertThat(reactiveQuickService.getById("John").block())
+                .extracting(Person::getSurname, Person::getMoney, Person::getVersion)
+                .containsExactly(jpaJohn.getSurname(), jpaJohn.getMoney(), jpaJohn.getVersion());
+        assertThat(reactiveQuickService.findBySurname("Reactive").map(Person::getName).collectList().block())
+                .containsExactlyInAnyOrder("John", "Jane");
+        assertThat(reactiveQuickService.getById("Nobody").blockOptional()).isEmpty();
+    }
+
+    @Test
+    void shouldNotLoseAnyOfConcurrentAtomicDeposits() {
+        Flux.range(0, 200)
+                .flatMap(i -> reactiveQuickService.depositMoney_atomic("John", BigDecimal.ONE), 50)
+                .blockLast();
+
+        assertThat(repo.findMoneyById("John")).hasValueSatisfying(money -> assertThat(money).isEqualByComparingTo("210"));
+    }
+
+    //every read-modify-write either commits on the version it read or fails, none overwrites another
+    @Test
+    void shouldFailStaleTransactionalDeposits_insteadOfOverwriting() {
+        final AtomicInteger conflicts = new AtomicInteger();
+        final List<Person> committed = Flux.range(0, 50)
+                .flatMap(i -> reactiveQuickService.depositMoney_transactional("John", BigDecimal.ONE)
+                        .onErrorResume(ObjectOptimisticLockingFailureException.class, ex -> {
+                            conflicts.incrementAndGet();
+                            return Mono.empty();
+                        }), 10)
+                .collectList()
+                .block();
+
+        assertThat(committed.size() + conflicts.get()).isEqualTo(50);
+        final Person john = repo.findById("John").orElseThrow();
+        assertThat(john.getMoney()).isEqualByComparingTo(BigDecimal.valueOf(10 + committed.size()));
+        assertThat(john.getVersion()).isEqualTo(committed.size());
+    }
+
+    @Test
+    void shouldRollBackWholeReactiveTransaction_whenPartOfItFails() {
+        final Mono<Void> depositThenFail = reactiveQuickService.depositMoney_atomic("John", BigDecimal.ONE)
+                .then(reactiveQuickService.depositMoney_atomic("Nobody", BigDecimal.ONE))
+                .as(reactiveTransactions::transactional);
+
+        assertThatThrownBy(depositThenFail::block).isInstanceOf(NoSuchElementException.class);
+        assertThat(repo.findMoneyById("John")).hasValueSatisfying(money -> assertThat(money).isEqualByComparingTo("10"));
+    }
+
+    //a read between the deposit and the outer commit would cache the committed 10 again if the eviction came earlier
+    @Test
+    void shouldEvictCachedPerson_afterOuterTransactionCommits() {
+        personCache.findById("John");
+
+        reactiveQuickService.depositMoney_atomic("John", BigDecimal.ONE)
+                .then(Mono.fromCallable(() -> personCache.findById("John")))
+                .as(reactiveTransactions::transactional)
+                .block();
+
+        assertThat(personCache.findById("John"))
+                .hasValueSatisfying(john -> assertThat(john.getMoney()).isEqualByComparingTo("11"));
+    }
+}
@@ -0,0 +1,8 @@
+package com.maciej.springtransactions.service.propagation;
+
+import org.springframework.test.context.ActiveProfiles;
+
+//same scenarios against MvccStore instead of the database
+@ActiveProfiles("mvcc")
+class MvccMyAnnotatedServicePropagationTest extends MyAnnotatedServicePropagationTest {
+}
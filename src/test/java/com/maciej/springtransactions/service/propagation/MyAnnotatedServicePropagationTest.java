@@ -77,6 +77,15 @@ class MyAnnotatedServicePropagationTest {
         assertThat(all.iterator().next().getName()).matches("A|B");
     }
 
+    @Test
+        //nested runs within savepoint of outer transaction and both are committed together
+    void shouldCommitBothTransactionsAndAllThreeInDb_whenNestedTransactionalMethodSucceed_andNestedHasPropagationNested() {
+
+        myAnnotatedServicePropagation.transactionalMethodWithNestedSucceedingTransactionalMethodWhichHasPropagationNested();
+
+        assertThat(repo.findAll()).hasSize(3);
+    }
+
     @Test
         //in this case outer rollbacks nested
     void shouldRollbackBothTransactions_whenInOuterTransactionalMethodOneServiceFails_andNestedHasPropagationNested() {
@@ -0,0 +1,88 @@
+package com.maciej.springtransactions.stress;
+
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import org.h2.engine.Constants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//short run per isolation level, StressHarness.main is for real numbers
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class IsolationStressTest {
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private QuickService quickService;
+
+    @Autowired
+    private SlowService slowService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.datasource.url:}")
+    private String url;
+
+    private StressHarness harness;
+
+    @BeforeEach
+    void setup() {
+        harness = new StressHarness(repo, quickService, slowService, transactionManager);
+    }
+
+    //H2 1.4.200 now and then applies an UPDATE of a snapshot transaction to the row version of its snapshot instead of
+    // the committed one, so the version check passes and a concurrent transfer is overwritten (an update trigger sees
+    // e.g. version 1835 written over 1839), audits then see the wrong total for the rest of the run. Money drift and
+    // audits above READ_COMMITTED are asserted by MvccIsolationStressTest and on any other database
+    protected boolean keepsSnapshotWrites() {
+        return !(url.startsWith("jdbc:h2:") && Constants.VERSION_MAJOR == 1);
+    }
+
+    //@Version on Person turns lost updates into failed transactions, as long as a version is never reused:
+    // at READ_UNCOMMITTED a transfer may read a write that is rolled back later, and the next committed write of that
+    // row gets the same version number, so the stale update passes its version check and money is created or destroyed.
+    //Above READ_COMMITTED nothing may show, reads and audits see one snapshot
+    @ParameterizedTest
+    @ValueSource(ints = {TransactionDefinition.ISOLATION_READ_UNCOMMITTED, TransactionDefinition.ISOLATION_READ_COMMITTED,
+            TransactionDefinition.ISOLATION_REPEATABLE_READ, TransactionDefinition.ISOLATION_SERIALIZABLE})
+    void shouldKeepCommittedStateConsistent_underConcurrentLoad(int isolation) {
+        final StressReport report = harness.run(StressScenario.defaultMix()
+                .isolation(isolation)
+                .workers(4)
+                .accounts(10)
+                .duration(Duration.ofSeconds(2))
+                .build());
+
+        assertThat(report.getCommitted()).as("%s", report).isPositive();
+        assertThat(report.getLostDeposits()).as("%s", report).isZero();
+        if (isolation == TransactionDefinition.ISOLATION_READ_UNCOMMITTED) {
+            return;
+        }
+        if (isolation == TransactionDefinition.ISOLATION_READ_COMMITTED) {
+            assertThat(report.getTransferTotalDrift()).as("%s", report).isZero();
+            return;
+        }
+        assertThat(report.getNonRepeatableReads().sum()).as("%s", report).isZero();
+        if (!keepsSnapshotWrites()) {
+            return;
+        }
+        assertThat(report.getTransferTotalDrift()).as("%s", report).isZero();
+        assertThat(report.getInconsistentAudits().sum()).as("%s", report).isZero();
+    }
+}
@@ -0,0 +1,13 @@
+package com.maciej.springtransactions.stress;
+
+import org.springframework.test.context.ActiveProfiles;
+
+//same load against MvccStore, which keeps every invariant at every isolation level
+@ActiveProfiles("mvcc")
+class MvccIsolationStressTest extends IsolationStressTest {
+
+    @Override
+    protected boolean keepsSnapshotWrites() {
+        return true;
+    }
+}
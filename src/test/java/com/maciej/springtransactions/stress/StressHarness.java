@@ -0,0 +1,243 @@
+package com.maciej.springtransactions.stress;
+
+import com.maciej.springtransactions.SpringTransactionsApplication;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import com.maciej.springtransactions.service.isolation.QuickService;
+import com.maciej.springtransactions.service.isolation.SlowService;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs a mix of operations from many threads over many accounts for a while and checks what the chosen isolation
+ * level let through: non-repeatable reads and audits seeing half of a transfer while running, lost deposits and
+ * money created or destroyed by transfers in the committed state afterwards.
+ * IsolationTest shows single anomalies with one pair of threads, this gives numbers for a load.
+ * <p>
+ * Longer runs: {@code java -cp ... StressHarness [profile] [seconds] [workers] [accounts]}, reports every isolation level.
+ */
+public class StressHarness {
+
+    private static final String TRANSFER = "StressTransfer";
+    private static final String DEPOSIT = "StressDeposit";
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1000);
+
+    private final InMemoryRepo repo;
+    private final QuickService quickService;
+    private final SlowService slowService;
+    private final PlatformTransactionManager transactionManager;
+
+    public StressHarness(InMemoryRepo repo, QuickService quickService, SlowService slowService,
+                         PlatformTransactionManager transactionManager) {
+        this.repo = repo;
+        this.quickService = quickService;
+        this.slowService = slowService;
+        this.transactionManager = transactionManager;
+    }
+
+    public StressReport run(StressScenario scenario) {
+        createAccounts(scenario.getAccounts());
+        try {
+            return stress(scenario);
+        } finally {
+            deleteAccounts();
+        }
+    }
+
+    private StressReport stress(StressScenario scenario) {
+        final StressReport report = new StressReport(scenario);
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setIsolationLevel(scenario.getIsolation());
+        final ExecutorService executor = Executors.newFixedThreadPool(scenario.getWorkers());
+        final long start = System.nanoTime();
+        final long deadline = start + scenario.getDuration().toNanos();
+        final List<CompletableFuture<Worker>> workers = IntStream.range(0, scenario.getWorkers())
+                .mapToObj(i -> new Worker(scenario, transaction, report, new Random(scenario.getSeed() + i)))
+                .map(worker -> CompletableFuture.supplyAsync(() -> worker.runUntil(deadline), executor))
+                .collect(Collectors.toList());
+        final List<Worker> finished = workers.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        executor.shutdown();
+
+        final Map<StressOperation, long[]> latencies = new EnumMap<>(StressOperation.class);
+        final Map<StressOperation, Long> committed = new EnumMap<>(StressOperation.class);
+        scenario.getMix().keySet().forEach(operation -> {
+            latencies.put(operation, finished.stream()
+                    .flatMapToLong(worker -> worker.latencies.get(operation).stream().mapToLong(Long::longValue))
+                    .toArray());
+            committed.put(operation, finished.stream().mapToLong(worker -> worker.committed.get(operation)).sum());
+        });
+        final long deposited = committed.getOrDefault(StressOperation.DEPOSIT, 0L)
+                + committed.getOrDefault(StressOperation.QUICK_DEPOSIT, 0L);
+        final long lostDeposits = deposited - total(DEPOSIT).longValueExact();
+        final long drift = total(TRANSFER).subtract(INITIAL_BALANCE.multiply(BigDecimal.valueOf(scenario.getAccounts())))
+                .longValueExact();
+        report.finish(elapsed, latencies, committed, lostDeposits, drift);
+        return report;
+    }
+
+    private class Worker {
+
+        private final StressScenario scenario;
+        private final TransactionTemplate transaction;
+        private final StressReport report;
+        private final Random random;
+        private final StressOperation[] weighted;
+        private final Map<StressOperation, List<Long>> latencies = new EnumMap<>(StressOperation.class);
+        private final Map<StressOperation, Long> committed = new EnumMap<>(StressOperation.class);
+
+        private Worker(StressScenario scenario, TransactionTemplate transaction, StressReport report, Random random) {
+            this.scenario = scenario;
+            this.transaction = transaction;
+            this.report = report;
+            this.random = random;
+            this.weighted = scenario.getMix().entrySet().stream()
+                    .flatMap(entry -> IntStream.range(0, entry.getValue()).mapToObj(i -> entry.getKey()))
+                    .toArray(StressOperation[]::new);
+            scenario.getMix().keySet().forEach(operation -> {
+                latencies.put(operation, new ArrayList<>());
+                committed.put(operation, 0L);
+            });
+        }
+
+        private Worker runUntil(long deadline) {
+            while (System.nanoTime() < deadline) {
+                final StressOperation operation = weighted[random.nextInt(weighted.length)];
+                final long start = System.nanoTime();
+                try {
+                    execute(operation);
+                    committed.merge(operation, 1L, Long::sum);
+                } catch (RuntimeException ex) {
+                    report.failed(ex);
+                }
+                latencies.get(operation).add(System.nanoTime() - start);
+            }
+            return this;
+        }
+
+        private void execute(StressOperation operation) {
+            switch (operation) {
+                case TRANSFER:
+                    final int from = random.nextInt(scenario.getAccounts());
+                    final int to = (from + 1 + random.nextInt(scenario.getAccounts() - 1)) % scenario.getAccounts();
+                    transaction.executeWithoutResult(status -> transfer(TRANSFER + from, TRANSFER + to));
+                    break;
+                case DEPOSIT:
+                    final String depositAccount = account(DEPOSIT);
+                    transaction.executeWithoutResult(status -> {
+                        final Person person = repo.findById(depositAccount).orElseThrow();
+                        person.setMoney(person.getMoney().add(BigDecimal.ONE));
+                        repo.saveAndFlush(person);
+                    });
+                    break;
+                case QUICK_DEPOSIT:
+                    final String quickAccount = account(DEPOSIT);
+                    transaction.executeWithoutResult(status -> quickService.depositMoney_transactional(quickAccount, BigDecimal.ONE));
+                    break;
+                case DOUBLE_READ:
+                    final String readAccount = account(TRANSFER);
+                    final boolean repeatable = transaction.execute(status -> {
+                        final BigDecimal first = repo.findMoneyById(readAccount).orElseThrow();
+                        Thread.yield();
+                        return first.compareTo(repo.findMoneyById(readAccount).orElseThrow()) == 0;
+                    });
+                    if (!repeatable) {
+                        report.getNonRepeatableReads().increment();
+                    }
+                    break;
+                case AUDIT:
+                    final BigDecimal total = transaction.execute(status -> IntStream.range(0, scenario.getAccounts())
+                            .mapToObj(i -> repo.findMoneyById(TRANSFER + i).orElseThrow())
+                            .reduce(BigDecimal.ZERO, BigDecimal::add));
+                    if (total.compareTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(scenario.getAccounts()))) != 0) {
+                        report.getInconsistentAudits().increment();
+                    }
+                    break;
+                case SLOW_SERVICE_READ:
+                    final String slowAccount = account(TRANSFER);
+                    transaction.executeWithoutResult(status -> slowService.getById_readCommitted(slowAccount).orElseThrow());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+        }
+
+        private void transfer(String from, String to) {
+            final Person source = repo.findById(from).orElseThrow();
+            final Person target = repo.findById(to).orElseThrow();
+            source.setMoney(source.getMoney().subtract(BigDecimal.ONE));
+            target.setMoney(target.getMoney().add(BigDecimal.ONE));
+            repo.save(source);
+            repo.saveAndFlush(target);
+        }
+
+        private String account(String kind) {
+            return kind + random.nextInt(scenario.getAccounts());
+        }
+    }
+
+    private void createAccounts(int accounts) {
+        deleteAccounts();
+        repo.saveAll(IntStream.range(0, accounts)
+                .boxed()
+                .flatMap(i -> List.of(
+                        Person.builder().name(TRANSFER + i).surname(TRANSFER).money(INITIAL_BALANCE).build(),
+                        Person.builder().name(DEPOSIT + i).surname(DEPOSIT).money(BigDecimal.ZERO).build()).stream())
+                .collect(Collectors.toList()));
+    }
+
+    private void deleteAccounts() {
+        repo.deleteAll(repo.findBySurname(TRANSFER));
+        repo.deleteAll(repo.findBySurname(DEPOSIT));
+    }
+
+    private BigDecimal total(String kind) {
+        return repo.findBySurname(kind).stream().map(Person::getMoney).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public static void main(String[] args) {
+        final String profile = args.length > 0 ? args[0] : "h2";
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final int workers = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        final int accounts = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringTransactionsApplication.class)
+                .profiles(profile)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties("logging.level.root=warn", "transaction.watchdog.enabled=false")
+                .run()) {
+            final StressHarness harness = new StressHarness(context.getBean(InMemoryRepo.class),
+                    context.getBean(QuickService.class), context.getBean(SlowService.class),
+                    context.getBean(PlatformTransactionManager.class));
+            for (int isolation : new int[]{TransactionDefinition.ISOLATION_READ_UNCOMMITTED,
+                    TransactionDefinition.ISOLATION_READ_COMMITTED, TransactionDefinition.ISOLATION_REPEATABLE_READ,
+                    TransactionDefinition.ISOLATION_SERIALIZABLE}) {
+                System.out.println(harness.run(StressScenario.defaultMix()
+                        .isolation(isolation)
+                        .duration(Duration.ofSeconds(seconds))
+                        .workers(workers)
+                        .accounts(accounts)
+                        .build()));
+            }
+        }
+    }
+}
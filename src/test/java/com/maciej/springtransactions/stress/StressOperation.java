@@ -0,0 +1,16 @@
+package com.maciej.springtransactions.stress;
+
+public enum StressOperation {
+    //moves 1 between two transfer accounts with read-modify-write of both
+    TRANSFER,
+    //adds 1 to a deposit account with read-modify-write
+    DEPOSIT,
+    //QuickService.depositMoney_transactional joining the scenario's transaction
+    QUICK_DEPOSIT,
+    //reads the same balance twice, different values are a non-repeatable read
+    DOUBLE_READ,
+    //sums all transfer accounts, any other total than the initial one means it saw part of a transfer
+    AUDIT,
+    //SlowService.getById_readCommitted joining the scenario's transaction
+    SLOW_SERVICE_READ
+}
@@ -0,0 +1,122 @@
+package com.maciej.springtransactions.stress;
+
+import lombok.Getter;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Getter
+public class StressReport {
+
+    private final StressScenario scenario;
+    private final Map<StressOperation, OperationStats> operations = new EnumMap<>(StressOperation.class);
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    private final LongAdder nonRepeatableReads = new LongAdder();
+    private final LongAdder inconsistentAudits = new LongAdder();
+    private Duration elapsed;
+    //checked on committed state after the run
+    private long lostDeposits;
+    private long transferTotalDrift;
+
+    StressReport(StressScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    void finish(Duration elapsed, Map<StressOperation, long[]> latencies, Map<StressOperation, Long> committed,
+                long lostDeposits, long transferTotalDrift) {
+        this.elapsed = elapsed;
+        latencies.forEach((operation, nanos) ->
+                operations.put(operation, new OperationStats(committed.getOrDefault(operation, 0L), nanos)));
+        this.lostDeposits = lostDeposits;
+        this.transferTotalDrift = transferTotalDrift;
+    }
+
+    void failed(Throwable ex) {
+        failures.computeIfAbsent(ex.getClass().getSimpleName(), key -> new LongAdder()).increment();
+    }
+
+    public long getCommitted() {
+        return operations.values().stream().mapToLong(OperationStats::getCommitted).sum();
+    }
+
+    public long getFailed() {
+        return failures.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public double getThroughput() {
+        return getCommitted() / (elapsed.toNanos() / 1e9);
+    }
+
+    public long getAnomalies() {
+        return nonRepeatableReads.sum() + inconsistentAudits.sum() + lostDeposits + Math.abs(transferTotalDrift);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder report = new StringBuilder(String.format(
+                "isolation=%s workers=%d accounts=%d elapsed=%dms committed=%d failed=%d throughput=%.0f tx/s%n",
+                isolationName(scenario.getIsolation()), scenario.getWorkers(), scenario.getAccounts(), elapsed.toMillis(),
+                getCommitted(), getFailed(), getThroughput()));
+        report.append(String.format("  anomalies: nonRepeatableReads=%d inconsistentAudits=%d lostDeposits=%d transferTotalDrift=%d%n",
+                nonRepeatableReads.sum(), inconsistentAudits.sum(), lostDeposits, transferTotalDrift));
+        report.append("  failures: ").append(new TreeMap<>(failures)).append(System.lineSeparator());
+        operations.forEach((operation, stats) -> report.append(String.format("  %-18s %s%n", operation, stats)));
+        return report.toString();
+    }
+
+    private static String isolationName(int isolation) {
+        switch (isolation) {
+            case TransactionDefinition.ISOLATION_READ_UNCOMMITTED:
+                return "READ_UNCOMMITTED";
+            case TransactionDefinition.ISOLATION_READ_COMMITTED:
+                return "READ_COMMITTED";
+            case TransactionDefinition.ISOLATION_REPEATABLE_READ:
+                return "REPEATABLE_READ";
+            case TransactionDefinition.ISOLATION_SERIALIZABLE:
+                return "SERIALIZABLE";
+            default:
+                return "DEFAULT";
+        }
+    }
+
+    //latencies cover failed attempts too, they cost as much
+    @Getter
+    public static class OperationStats {
+
+        private final long committed;
+        private final long attempts;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        OperationStats(long committed, long[] nanos) {
+            Arrays.sort(nanos);
+            this.committed = committed;
+            this.attempts = nanos.length;
+            this.p50Millis = percentile(nanos, 0.50);
+            this.p95Millis = percentile(nanos, 0.95);
+            this.p99Millis = percentile(nanos, 0.99);
+            this.maxMillis = nanos.length == 0 ? 0 : nanos[nanos.length - 1] / 1e6;
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("committed=%d attempts=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                    committed, attempts, p50Millis, p95Millis, p99Millis, maxMillis);
+        }
+    }
+}
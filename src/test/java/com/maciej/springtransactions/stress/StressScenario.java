@@ -0,0 +1,40 @@
+package com.maciej.springtransactions.stress;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+import java.util.Map;
+
+//every operation of a run is executed in one transaction with this isolation, service methods join it
+@Value
+@Builder
+public class StressScenario {
+
+    @Builder.Default
+    int isolation = TransactionDefinition.ISOLATION_DEFAULT;
+    @Builder.Default
+    int workers = 8;
+    @Builder.Default
+    Duration duration = Duration.ofSeconds(10);
+    //accounts of each kind: transfer accounts keep their total, deposit accounts only grow
+    @Builder.Default
+    int accounts = 20;
+    //relative weights, operations without weight are not run
+    @Singular("weight")
+    Map<StressOperation, Integer> mix;
+    @Builder.Default
+    long seed = 42;
+
+    public static StressScenario.StressScenarioBuilder defaultMix() {
+        return builder()
+                .weight(StressOperation.TRANSFER, 30)
+                .weight(StressOperation.DEPOSIT, 20)
+                .weight(StressOperation.QUICK_DEPOSIT, 10)
+                .weight(StressOperation.DOUBLE_READ, 20)
+                .weight(StressOperation.AUDIT, 10)
+                .weight(StressOperation.SLOW_SERVICE_READ, 10);
+    }
+}
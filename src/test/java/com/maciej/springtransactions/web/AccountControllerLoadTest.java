@@ -0,0 +1,181 @@
+package com.maciej.springtransactions.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maciej.springtransactions.model.Person;
+import com.maciej.springtransactions.repository.InMemoryRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//fewer request threads than requests in flight: only possible when handlers don't hold their thread
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.max-threads=4", "web.max-in-flight=8", "async.transactions.max-concurrency=8"})
+class AccountControllerLoadTest {
+
+    private static final int TOMCAT_THREADS = 4;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private InMemoryRepo repo;
+
+    @Autowired
+    private InFlightLimiter limiter;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @AfterEach
+    void cleanup() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void shouldDepositGetAndPageBySurname() throws Exception {
+        IntStream.range(0, 5).forEach(i -> addPerson("Page" + i, "Pages"));
+        addPerson("Other", "Others");
+
+        final HttpResponse<String> deposit = send(post("/accounts/Page1/deposits?amount=2.5"));
+        assertThat(deposit.statusCode()).isEqualTo(200);
+        assertThat(json(deposit).get("money").decimalValue()).isEqualByComparingTo("12.5");
+        assertThat(json(send(get("/accounts/Page1"))).get("money").decimalValue()).isEqualByComparingTo("12.5");
+        assertThat(send(get("/accounts/Nobody")).statusCode()).isEqualTo(404);
+        assertThat(send(post("/accounts/Nobody/deposits?amount=1")).statusCode()).isEqualTo(404);
+
+        final List<List<String>> pages = new ArrayList<>();
+        String after = "";
+        do {
+            final JsonNode page = json(send(get("/accounts?surname=Pages&limit=2&after=" + after)));
+            final List<String> names = new ArrayList<>();
+            page.get("items").forEach(item -> names.add(item.get("name").asText()));
+            pages.add(names);
+            after = page.get("next").isNull() ? null : page.get("next").asText();
+        } while (after != null);
+        assertThat(pages).containsExactly(List.of("Page0", "Page1"), List.of("Page2", "Page3"), List.of("Page4"));
+    }
+
+    @Test
+    void shouldKeepMoreRequestsInFlightThanRequestThreads_andRejectTheRest() throws Exception {
+        //a slow deposit holds its row until commit, every one goes to its own account so they don't queue for the lock
+        IntStream.range(0, limiter.getMaxInFlight()).forEach(i -> addPerson("Slow" + i, "Slow"));
+        final List<CompletableFuture<HttpResponse<String>>> slowDeposits = IntStream.range(0, limiter.getMaxInFlight())
+                .mapToObj(i -> sendAsync(post("/accounts/Slow" + i + "/deposits?amount=1&slow=true")))
+                .collect(Collectors.toList());
+        awaitInFlight(limiter.getMaxInFlight());
+
+        final long start = System.nanoTime();
+        final HttpResponse<String> rejected = send(get("/accounts/Slow0"));
+        final Duration rejectedIn = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(limiter.getMaxInFlight()).isGreaterThan(TOMCAT_THREADS);
+        assertThat(rejected.statusCode()).isEqualTo(503);
+        assertThat(rejected.headers().firstValue("Retry-After")).hasValue("1");
+        assertThat(rejectedIn).isLessThan(Duration.ofMillis(500));
+        assertThat(slowDeposits).allSatisfy(response -> assertThat(response.join().statusCode()).isEqualTo(200));
+        assertThat(repo.findBySurname("Slow")).allSatisfy(person -> assertThat(person.getMoney()).isEqualByComparingTo("11"));
+        //permit is given back when the container completes the async request, possibly after the client got response
+        awaitInFlight(0);
+    }
+
+    //every client deposits to its own account, so a 200 means exactly one deposit committed
+    @Test
+    void loadTest_depositsUnderAdmissionControl() throws InterruptedException {
+        final int clients = 32;
+        final int requestsPerClient = 25;
+        IntStream.range(0, clients).forEach(i -> addPerson("Load" + i, "Load"));
+        final ConcurrentMap<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        final ExecutorService clientThreads = Executors.newFixedThreadPool(clients);
+        final long start = System.nanoTime();
+        final CompletableFuture<?>[] runs = IntStream.range(0, clients)
+                .mapToObj(client -> CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        final long sent = System.nanoTime();
+                        final HttpResponse<String> response = sendAsync(post("/accounts/Load" + client + "/deposits?amount=1")).join();
+                        latencies.add(System.nanoTime() - sent);
+                        statuses.computeIfAbsent(response.statusCode(), status -> new AtomicInteger()).incrementAndGet();
+                    }
+                }, clientThreads))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(runs).join();
+        final Duration took = Duration.ofNanos(System.nanoTime() - start);
+        clientThreads.shutdown();
+
+        Collections.sort(latencies);
+        final int ok = statuses.getOrDefault(200, new AtomicInteger()).get();
+        final String report = String.format("%d requests in %dms (%.0f/s), status counts %s, p50 %.1fms, p99 %.1fms",
+                latencies.size(), took.toMillis(), latencies.size() * 1000.0 / took.toMillis(), statuses,
+                latencies.get(latencies.size() / 2) / 1e6, latencies.get(latencies.size() * 99 / 100) / 1e6);
+
+        assertThat(statuses.keySet()).as("%s", report).isSubsetOf(200, 503);
+        assertThat(ok).as("%s", report).isPositive();
+        final BigDecimal deposited = repo.findBySurname("Load").stream()
+                .map(Person::getMoney).reduce(BigDecimal.ZERO, BigDecimal::add).subtract(BigDecimal.TEN.multiply(BigDecimal.valueOf(clients)));
+        assertThat(deposited).as("%s", report).isEqualByComparingTo(BigDecimal.valueOf(ok));
+        awaitInFlight(0);
+    }
+
+    private void addPerson(String name, String surname) {
+        repo.save(Person.builder().name(name).surname(surname).money(BigDecimal.TEN).build());
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (limiter.getInFlight() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(limiter.getInFlight()).isEqualTo(expected);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws Exception {
+        return mapper.readTree(response.body());
+    }
+}